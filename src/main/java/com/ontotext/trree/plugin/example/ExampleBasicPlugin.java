@@ -1,21 +1,39 @@
 package com.ontotext.trree.plugin.example;
 
 import com.ontotext.trree.sdk.*;
+import com.ontotext.trree.sdk.impl.RequestContextImpl;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter {
+public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter, Preprocessor, UpdateInterpreter,
+		PluginTransactionListener {
 
 	// The predicate we will be listening for
 	private static final String NOW_PREDICATE = "http://example.com/now";
 	private static final String LIST_PREDICATE = "http://example.com/list";
 
+	// Full enumerations of stores with at least this many subjects are scanned concurrently
+	private static final int PARALLEL_SCAN_THRESHOLD = 10_000;
+
 	private long nowPredicateId; // ID of the predicate in the entity pool
 	private long listPredicateId; // ID of the predicate in the entity pool
 
+	// The current version of the data provided by the list predicate. Writers publish a new version atomically and
+	// each request pins the version that was current when the request started.
+	private final AtomicReference<ListStore> listStore = new AtomicReference<>();
+	// The changes to the list data made by the current transaction and the version that will be published when
+	// the transaction completes. GraphDB runs a single update transaction at a time.
+	private ListStore.Changes pendingListChanges;
+	private ListStore committedListStore;
+	private ExecutorService scanExecutor; // used for concurrent scans of the list data
+	private int scanPartitions;
+
 	// Service interface methods
 	@Override
 	public String getName() {
@@ -35,9 +53,134 @@ public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter
 		// Put the predicate in the entity pool using the SYSTEM scope
 		listPredicateId = pluginConnection.getEntities().put(listPredicate, Entities.Scope.SYSTEM);
 
+		// Resolve the list data to entity IDs once, so that queries don't have to do it for every row. The list
+		// statements stored in the repository by earlier updates are added to the built-in values.
+		ListStore.Changes stored = new ListStore.Changes();
+		StatementIterator iter = pluginConnection.getStatements().get(0, listPredicateId, 0);
+		try {
+			while (iter.next()) {
+				stored.add(iter.subject, iter.object, true);
+			}
+		} finally {
+			iter.close();
+		}
+		listStore.set(ListStore.create(pluginConnection.getEntities()).with(stored));
+
+		// A bounded pool of daemon threads for scanning partitions of the list data. It is shared by all queries,
+		// the scan tasks never wait for a consumer so one query can't hold the threads needed by another.
+		scanPartitions = Runtime.getRuntime().availableProcessors();
+		scanExecutor = Executors.newFixedThreadPool(scanPartitions, runnable -> {
+			Thread thread = new Thread(runnable, "example-list-scan");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		if (WarmUp.isEnabled(reason)) {
+			// Run the list iterator over the data for a while so that it gets compiled by the JIT before real
+			// queries arrive. This doesn't need the plugin connection so it can run in the background.
+			WarmUp.runInBackground("example-list-warmup", this::warmUpListIterator);
+		}
+
 		getLogger().info("ExampleBasic plugin initialized!");
 	}
 
+	private void warmUpListIterator() {
+		if (listStore.get().size() == 0) {
+			return;
+		}
+		ExampleListIterator iterator = new ExampleListIterator(listStore.get());
+		long deadline = System.currentTimeMillis() + WarmUp.MILLIS;
+		long rows = 0;
+		while (System.currentTimeMillis() < deadline) {
+			iterator.reset(0, 0);
+			while (iterator.next()) {
+				// Bound subject and object lookups take different paths, exercise them too
+				ExampleListIterator bound = new ExampleListIterator(listStore.get()).reset(iterator.subject,
+						iterator.object);
+				while (bound.next()) {
+					rows++;
+				}
+				rows++;
+			}
+			iterator.close();
+		}
+		getLogger().debug("List warm-up iterated {} rows", rows);
+	}
+
+	@Override
+	public void shutdown(ShutdownReason reason) {
+		if (scanExecutor != null) {
+			scanExecutor.shutdownNow();
+		}
+	}
+
+	// Preprocessor interface methods
+	@Override
+	public RequestContext preprocess(Request request) {
+		// Create a Context object for every request. It will be passed to interpret() and estimate() and lets us
+		// keep objects that can be reused within the same request.
+		RequestContextImpl context = new RequestContextImpl();
+		// Pin the current version of the list data, so the request doesn't see updates made while it runs
+		context.setAttribute("listStore", listStore.get());
+		// Record what we do if the query is in explain mode
+		ExplainLog.attach(request, context);
+		return context;
+	}
+
+	// UpdateInterpreter interface methods
+	@Override
+	public long[] getPredicatesToListenFor() {
+		return new long[] {listPredicateId};
+	}
+
+	@Override
+	public boolean interpretUpdate(long subject, long predicate, long object, long context, boolean isAddition,
+								   boolean isExplicit, PluginConnection pluginConnection) {
+		// Adding or removing a statement with the list predicate updates the list data. The change is only recorded
+		// here, it becomes visible to other requests when the transaction completes.
+		if (pendingListChanges == null) {
+			pendingListChanges = new ListStore.Changes();
+		}
+		pendingListChanges.add(subject, object, isAddition);
+
+		// The statement is still inserted in (or removed from) the DB, so the change survives a restart and the list
+		// data is loaded from the DB on the next initialize()
+		return false;
+	}
+
+	// PluginTransactionListener interface methods
+	@Override
+	public void transactionStarted(PluginConnection pluginConnection) {
+		pendingListChanges = null;
+		committedListStore = null;
+	}
+
+	@Override
+	public void transactionCommit(PluginConnection pluginConnection) {
+		// Build the new version of the list data with all changes made by the transaction applied at once.
+		// If this fails the transaction is aborted.
+		if (pendingListChanges != null) {
+			committedListStore = listStore.get().with(pendingListChanges);
+		}
+	}
+
+	@Override
+	public void transactionCompleted(PluginConnection pluginConnection) {
+		// Publish the new version, requests that start after this point see all changes of the transaction.
+		if (committedListStore != null) {
+			listStore.set(committedListStore);
+		}
+		pendingListChanges = null;
+		committedListStore = null;
+	}
+
+	@Override
+	public void transactionAborted(PluginConnection pluginConnection) {
+		// Drop the changes, nothing was published
+		pendingListChanges = null;
+		committedListStore = null;
+	}
+
 	// This method will be called to determine if the plugin is interested in handling a given triple pattern.
 	// If the plugin wants to handle it, it must return a non-null value.
 	//
@@ -54,15 +197,30 @@ public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter
 			// Create the date/time literal. Here it is important to create the literal in the entities instance of the
 			// request and NOT in getEntities(). If you create it in the entities instance returned by getEntities() it
 			// will not be visible in the current request.
-			long literalId = createDateTimeLiteral(pluginConnection.getEntities());
+			long literalId = createDateTimeLiteral(pluginConnection.getEntities(), requestContext);
 
 			// return a StatementIterator with a single statement to be iterated. The object of this statement will be the
 			// current timestamp.
-			return StatementIterator.create(subject, predicate, literalId, 0);
+			return explain(requestContext, subject, NOW_PREDICATE, object, "current-time",
+					StatementIterator.create(subject, predicate, literalId, 0));
 		} else if (predicate == listPredicateId) {
+			ListStore store = getListStore(requestContext);
+			if (isDefiniteListMiss(store, subject, object)) {
+				// The bound subject (or subject/object pair) is definitely not in the data, no need to look further
+				return explain(requestContext, subject, LIST_PREDICATE, object, "bloom-filter-miss",
+						StatementIterator.EMPTY);
+			}
+			if (subject == 0 && object == 0 && store.size() >= PARALLEL_SCAN_THRESHOLD) {
+				// Enumerating everything in a large store, split the work between several threads
+				return explain(requestContext, subject, LIST_PREDICATE, object, "parallel-scan",
+						new ParallelListIterator(store, scanPartitions, scanExecutor));
+			}
 			// Creates an iterator that enumerates all possible list values, taking into account the bound subject
 			// and object (i.e. bound if they are non-zero).
-			return new ExampleListIterator(subject, object, pluginConnection);
+			String accessPath = (subject != 0 ? "subject-lookup" : "scan")
+					+ (object != 0 ? "+object-membership" : "");
+			return explain(requestContext, subject, LIST_PREDICATE, object, accessPath,
+					getListIterator(store, requestContext).reset(subject, object));
 		} else {
 			// Ignore patterns with predicate different from the ones we are interested in.
 			//
@@ -72,6 +230,16 @@ public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter
 		}
 	}
 
+	private StatementIterator explain(RequestContext requestContext, long subject, String predicate, long object,
+									  String accessPath, StatementIterator iterator) {
+		ExplainLog explainLog = ExplainLog.get(requestContext);
+		if (explainLog == null) {
+			return iterator;
+		}
+		return explainLog.recordInterpret(getName(), ExplainLog.shape(subject, predicate, object), accessPath,
+				iterator);
+	}
+
 	// When interpret() returns a non-null value, this method will be called to determine the expected complexity
 	// of the iterator returned by interpret(). Lower values mean lesser complexity.
 	//
@@ -83,17 +251,70 @@ public class ExampleBasicPlugin extends PluginBase implements PatternInterpreter
 	@Override
 	public double estimate(long subject, long predicate, long object, long context,
 						   PluginConnection pluginConnection, RequestContext requestContext) {
-		// We always return a constant 1. This is a simple way to ensure our plugin gets evaluated early.
-		return 1;
+		double estimate;
+		if (predicate == listPredicateId && isDefiniteListMiss(getListStore(requestContext), subject, object)) {
+			// Nothing will be returned so this is as cheap as it gets
+			estimate = 0.01;
+		} else {
+			// Otherwise we return a constant 1. This is a simple way to ensure our plugin gets evaluated early.
+			estimate = 1;
+		}
+
+		ExplainLog explainLog = ExplainLog.get(requestContext);
+		if (explainLog != null && (predicate == nowPredicateId || predicate == listPredicateId)) {
+			explainLog.recordEstimate(getName(), ExplainLog.shape(subject,
+					predicate == nowPredicateId ? NOW_PREDICATE : LIST_PREDICATE, object), estimate,
+					ExplainLog.isBoundButUnknown(subject, object));
+		}
+		return estimate;
+	}
+
+	private boolean isDefiniteListMiss(ListStore store, long subject, long object) {
+		// Only actual values can be checked, zero means unbound and Entities.BOUND means bound but not yet known
+		boolean subjectKnown = subject != 0 && subject != Entities.BOUND;
+		boolean objectKnown = object != 0 && object != Entities.BOUND;
+		if (subjectKnown && !store.mightContain(subject)) {
+			return true;
+		}
+		return subjectKnown && objectKnown && !store.mightContain(subject, object);
+	}
+
+	private ListStore getListStore(RequestContext requestContext) {
+		if (requestContext instanceof RequestContextImpl) {
+			ListStore pinned = (ListStore) ((RequestContextImpl) requestContext).getAttribute("listStore");
+			if (pinned != null) {
+				return pinned;
+			}
+		}
+		// Not in a request that we preprocessed, use the latest version
+		return listStore.get();
+	}
+
+	private ExampleListIterator getListIterator(ListStore store, RequestContext requestContext) {
+		if (!(requestContext instanceof RequestContextImpl)) {
+			return new ExampleListIterator(store);
+		}
+
+		// Reuse the iterator from a previous call within the same request, unless it is still being iterated
+		// (e.g. when the list predicate appears more than once in a query).
+		RequestContextImpl context = (RequestContextImpl) requestContext;
+		ExampleListIterator iterator = (ExampleListIterator) context.getAttribute("listIterator");
+		if (iterator == null || iterator.isInUse()) {
+			iterator = new ExampleListIterator(store);
+			context.setAttribute("listIterator", iterator);
+		}
+		return iterator;
 	}
 
-	private long createDateTimeLiteral(Entities entities) {
+	private long createDateTimeLiteral(Entities entities, RequestContext requestContext) {
 		// Create a literal for the current timestamp.
 		Value literal = SimpleValueFactory.getInstance().createLiteral(new Date());
 
 		// Add the literal in the entity pool with REQUEST scope. This will make the literal accessible only for the
 		// current Request and will be disposed once the request is completed. Return it's ID.
-		return entities.put(literal, Entities.Scope.REQUEST);
+		// RequestEntities takes care of putting each distinct literal only once per request, e.g. when the predicate
+		// is evaluated for many rows within the same millisecond.
+		return RequestEntities.forRequest(requestContext).put(literal, entities);
 	}
 
 }
@@ -4,13 +4,24 @@ import com.ontotext.trree.sdk.Entities;
 import com.ontotext.trree.sdk.InitReason;
 import com.ontotext.trree.sdk.ListPatternInterpreter;
 import com.ontotext.trree.sdk.PluginBase;
+import com.ontotext.trree.sdk.Plugin;
 import com.ontotext.trree.sdk.PluginConnection;
+import com.ontotext.trree.sdk.PluginDependency;
+import com.ontotext.trree.sdk.PluginLocator;
+import com.ontotext.trree.sdk.Preprocessor;
+import com.ontotext.trree.sdk.Request;
 import com.ontotext.trree.sdk.RequestContext;
+import com.ontotext.trree.sdk.ShutdownReason;
 import com.ontotext.trree.sdk.StatementIterator;
+import com.ontotext.trree.sdk.impl.RequestContextImpl;
 import org.eclipse.collections.api.map.primitive.ImmutableLongObjectMap;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * This plugin defines the predicate http://example.com/getLabel as a multiple-argument functional interface,
  * where the function's arguments are provided as an RDF list in the object and the function output will be bound
@@ -27,11 +38,28 @@ import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
  * <p>
  * The language matching logic is compatible with the SPARQL langMatches() function.
  * <p>
+ * The predicate http://example.com/getLabelWithFallback takes the same arguments but also tries each language tag
+ * truncated according to BCP-47, e.g. "pt-BR" is followed by "pt", see {@link GetLabelFunctionalPattern}.
+ * <p>
+ * The predicates http://example.com/labelCount, http://example.com/languageCount and
+ * http://example.com/languageCoverage compute a single number per resource from its labels,
+ * see {@link LabelAggregateFunctionalPattern}.
+ * <p>
+ * The plugin also defines the predicate http://example.com/timeRange that lazily generates date/time values,
+ * see {@link TimeRangeFunctionalPattern}.
+ * <p>
+ * When the warm-up is enabled (see {@link WarmUp}) the resources most recently looked up by getLabel are saved at
+ * shutdown and their labels are pre-loaded on the next startup.
+ * <p>
  * It is trivial to add more functional patterns by implementing the {@link FunctionalPattern} interface and passing
  * the instance to {@link #registerFunctionalPatterns(PluginConnection, FunctionalPattern...)}
  */
-public class ExampleFunctionalPlugin extends PluginBase implements ListPatternInterpreter {
+public class ExampleFunctionalPlugin extends PluginBase implements ListPatternInterpreter, PluginDependency,
+        Preprocessor {
     private ImmutableLongObjectMap<FunctionalPattern> functionalPatternMap;
+    private PluginLocator pluginLocator;
+    // Recorded only when the warm-up is enabled, so queries don't pay for it otherwise
+    private final WarmUp.HotKeys hotKeys = WarmUp.ENABLED ? new WarmUp.HotKeys(WarmUp.MAX_KEYS) : null;
 
     @Override
     public String getName() {
@@ -40,12 +68,105 @@ public class ExampleFunctionalPlugin extends PluginBase implements ListPatternIn
 
     @Override
     public void initialize(InitReason reason, PluginConnection pluginConnection) {
-        // Register the getLabel functional pattern
-        functionalPatternMap = registerFunctionalPatterns(pluginConnection, new GetLabelFunctionalPattern());
+        // Register the getLabel, getLabelWithFallback, label aggregate and timeRange functional patterns
+        functionalPatternMap = registerFunctionalPatterns(pluginConnection, new GetLabelFunctionalPattern(),
+                new GetLabelFunctionalPattern("http://example.com/getLabelWithFallback", true),
+                new LabelAggregateFunctionalPattern(LabelAggregateFunctionalPattern.Aggregate.LABEL_COUNT),
+                new LabelAggregateFunctionalPattern(LabelAggregateFunctionalPattern.Aggregate.LANGUAGE_COUNT),
+                new LabelAggregateFunctionalPattern(LabelAggregateFunctionalPattern.Aggregate.LANGUAGE_COVERAGE),
+                new TimeRangeFunctionalPattern(this::getTimeOffsetHrs));
+
+        if (WarmUp.isEnabled(reason)) {
+            warmUp(pluginConnection);
+        }
 
         getLogger().info("ExampleFunctional plugin initialized!");
     }
 
+    @Override
+    public void shutdown(ShutdownReason reason) {
+        if (hotKeys == null) {
+            return;
+        }
+        // Save the hot keys so that the next startup can pre-load them
+        try {
+            File file = getHotKeysFile();
+            file.getParentFile().mkdirs();
+            hotKeys.save(file);
+        } catch (IOException e) {
+            getLogger().warn("Unable to save hot keys", e);
+        }
+    }
+
+    private void warmUp(PluginConnection pluginConnection) {
+        long start = System.currentTimeMillis();
+        Entities entities = pluginConnection.getEntities();
+
+        // Pre-resolve the configured label predicates and language tags
+        long[] labelPredicateIds = Arrays.stream(WarmUp.split(WarmUp.LABEL_PREDICATES))
+                .mapToLong(iri -> entities.resolve(SimpleValueFactory.getInstance().createIRI(iri)))
+                .filter(id -> id != 0)
+                .toArray();
+        long languageCount = Arrays.stream(WarmUp.split(WarmUp.LANGUAGES))
+                .mapToLong(language -> entities.resolve(SimpleValueFactory.getInstance().createLiteral(language)))
+                .filter(id -> id != 0)
+                .count();
+
+        // Pre-load the labels of the resources saved at the last shutdown
+        long[] savedKeys;
+        try {
+            savedKeys = WarmUp.HotKeys.load(getHotKeysFile(), WarmUp.MAX_KEYS);
+        } catch (IOException e) {
+            // Start without pre-loading, as if there was no file
+            getLogger().warn("Unable to load hot keys", e);
+            savedKeys = new long[0];
+        }
+        int labelCount = 0;
+        for (int i = 0; i < savedKeys.length; i++) {
+            for (long labelPredicateId : labelPredicateIds) {
+                StatementIterator iter = pluginConnection.getStatements().get(savedKeys[i], labelPredicateId, 0);
+                try {
+                    while (iter.next()) {
+                        entities.get(iter.object);
+                        labelCount++;
+                    }
+                } finally {
+                    iter.close();
+                }
+            }
+            // Keep them as hot keys until they are replaced by actual lookups
+            hotKeys.record(savedKeys[i]);
+        }
+
+        getLogger().info("Warm-up resolved {} label predicates and {} languages, pre-loaded {} labels of {} resources"
+                        + " in {} ms", labelPredicateIds.length, languageCount, labelCount,
+                savedKeys.length, System.currentTimeMillis() - start);
+    }
+
+    private File getHotKeysFile() {
+        return new File(getDataDir(), "hot-keys");
+    }
+
+    @Override
+    public RequestContext preprocess(Request request) {
+        // Create a Context object for every request, functional patterns can use it to keep state for the request
+        RequestContextImpl context = new RequestContextImpl();
+        // Record what we do if the query is in explain mode
+        ExplainLog.attach(request, context);
+        return context;
+    }
+
+    @Override
+    public void setLocator(PluginLocator locator) {
+        pluginLocator = locator;
+    }
+
+    private int getTimeOffsetHrs() {
+        // The time offset is owned by the example plugin, use it if it is available
+        Plugin examplePlugin = pluginLocator != null ? pluginLocator.locate("example") : null;
+        return examplePlugin instanceof ExamplePlugin ? ((ExamplePlugin) examplePlugin).getTimeOffsetHrs() : 0;
+    }
+
     private ImmutableLongObjectMap<FunctionalPattern> registerFunctionalPatterns(PluginConnection pluginConnection,
             FunctionalPattern... functionalPatterns) {
         LongObjectHashMap<FunctionalPattern> map = new LongObjectHashMap<>();
@@ -71,7 +192,15 @@ public class ExampleFunctionalPlugin extends PluginBase implements ListPatternIn
             }
         }
 
-        return 1;
+        FunctionalPattern functionalPattern = functionalPatternMap.get(predicate);
+        double estimate = functionalPattern != null ? functionalPattern.estimate(objects, pluginConnection) : 1;
+
+        ExplainLog explainLog = ExplainLog.get(requestContext);
+        if (explainLog != null && functionalPattern != null) {
+            explainLog.recordEstimate(getName(), ExplainLog.shape(subject, functionalPattern.getIRI(), objects),
+                    estimate, ExplainLog.isBoundButUnknown(subject, objects));
+        }
+        return estimate;
     }
 
     @Override
@@ -84,14 +213,31 @@ public class ExampleFunctionalPlugin extends PluginBase implements ListPatternIn
                 // See note in estimate() method. If we do get evaluated with unbound objects simply return
                 // an empty iterator (and besides we must return an iterator to signal we want to handle this pattern)
                 if (object == 0) {
-                    return StatementIterator.EMPTY;
+                    return explain(requestContext, subject, functionalPattern, objects, "unbound-arguments",
+                            StatementIterator.EMPTY);
                 }
             }
 
-            return functionalPattern.evaluate(objects, pluginConnection);
+            if (hotKeys != null && functionalPattern instanceof GetLabelFunctionalPattern) {
+                // Remember the resource for pre-loading on the next startup
+                hotKeys.record(objects[0]);
+            }
+
+            return explain(requestContext, subject, functionalPattern, objects, "functional",
+                    functionalPattern.evaluate(objects, pluginConnection, requestContext));
         }
 
         // Not interested in handling this triple pattern
         return null;
     }
+
+    private StatementIterator explain(RequestContext requestContext, long subject, FunctionalPattern functionalPattern,
+            long[] objects, String accessPath, StatementIterator iterator) {
+        ExplainLog explainLog = ExplainLog.get(requestContext);
+        if (explainLog == null) {
+            return iterator;
+        }
+        return explainLog.recordInterpret(getName(), ExplainLog.shape(subject, functionalPattern.getIRI(), objects),
+                accessPath, iterator);
+    }
 }
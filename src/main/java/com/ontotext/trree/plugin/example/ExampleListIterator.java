@@ -1,88 +1,105 @@
 package com.ontotext.trree.plugin.example;
 
-import com.ontotext.trree.sdk.Entities;
-import com.ontotext.trree.sdk.PluginConnection;
 import com.ontotext.trree.sdk.StatementIterator;
-import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.ValueFactory;
-import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
-
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 /**
  * A {@link StatementIterator} that is capable on filtering internally based on the subject/object values used.
+ * <p>
+ * The iterator walks the segments of a {@link ListStore} by index, decoding the object IDs on the fly, and does not
+ * allocate anything per row. Once closed it can be reused for another pattern via {@link #reset(long, long)}.
  */
 public class ExampleListIterator extends StatementIterator {
-    private static final ValueFactory VF = SimpleValueFactory.getInstance();
-    private static final Map<Value, List<Value>> DATA;
+    private final ListStore store;
+    private final ListSegment.ObjectCursor objects = new ListSegment.ObjectCursor();
 
-    static {
-        // Initialize the data as a simple mapping from subject to multiple object values associated
-        // with the subject.
-        Map<Value, List<Value>> map = new HashMap<>();
-        map.put(VF.createIRI("http://example.com/iri1"),
-                Arrays.asList(VF.createLiteral("a"), VF.createLiteral("b")));
-        map.put(VF.createIRI("http://example.com/iri2"),
-                Arrays.asList(VF.createLiteral("a"), VF.createLiteral("c")));
-        DATA = Collections.unmodifiableMap(map);
-    }
+    private long filterObject;
+    private int segmentIndex;
+    private int segmentEnd;
+    private ListSegment segment;
+    private int subjectIndex;
+    private int subjectEnd;
+    private boolean inUse;
 
-    private final Entities entities;
-    private final Iterator<Map.Entry<Value, List<Value>>> outerIter;
-    private final long filterObject;
-    private Iterator<Value> innerIter;
+    ExampleListIterator(ListStore store) {
+        this.store = store;
+    }
 
-    ExampleListIterator(long filterSubject, long filterObject, PluginConnection pluginConnection) {
+    /**
+     * Prepares the iterator to enumerate the values matching the given subject and object. Zero means unbound.
+     *
+     * @param filterSubject the subject ID or zero
+     * @param filterObject  the object ID or zero
+     * @return this iterator
+     */
+    ExampleListIterator reset(long filterSubject, long filterObject) {
         this.filterObject = filterObject;
-        this.entities = pluginConnection.getEntities();
+        segment = null;
+        subjectIndex = 0;
+        subjectEnd = 0;
+        if (filterSubject == 0) {
+            // No filter - all segments
+            segmentIndex = 0;
+            segmentEnd = store.segmentCount();
+        } else {
+            // Only the bound subject, if it is present at all
+            segmentIndex = 0;
+            segmentEnd = 0;
+            int index = store.segmentIndexOf(filterSubject);
+            if (index >= 0) {
+                segment = store.segmentAt(index);
+                int indexInSegment = segment.indexOf(filterSubject);
+                subjectIndex = Math.max(indexInSegment, 0);
+                subjectEnd = indexInSegment < 0 ? 0 : indexInSegment + 1;
+            }
+        }
+        // Start with an exhausted cursor so that next() moves to the first subject
+        objects.skipAll();
+        inUse = true;
+        return this;
+    }
 
-        outerIter = filterCollection(DATA.entrySet(), Map.Entry::getKey, filterSubject);
+    /**
+     * Tells whether the iterator is being used or it was closed and can be reset.
+     *
+     * @return true if the iterator is in use
+     */
+    boolean isInUse() {
+        return inUse;
     }
 
     @Override
     public boolean next() {
-        if (innerIter == null || !innerIter.hasNext()) {
-            if (outerIter.hasNext()) {
-                Map.Entry<Value, List<Value>> entry = outerIter.next();
-                innerIter = filterCollection(entry.getValue(), Function.identity(), filterObject);
-                subject = entities.put(entry.getKey(), Entities.Scope.REQUEST);
-            } else {
-                return false;
-            }
-        }
-        if (innerIter.hasNext()) {
-            Value objectValue = innerIter.next();
-            object = entities.put(objectValue, Entities.Scope.REQUEST);
+        while (true) {
+            if (!objects.hasNext()) {
+                while (segment == null || subjectIndex >= subjectEnd) {
+                    if (segmentIndex >= segmentEnd) {
+                        return false;
+                    }
+                    segment = store.segmentAt(segmentIndex++);
+                    subjectIndex = 0;
+                    subjectEnd = segment.size();
+                }
+                subject = segment.subjectAt(subjectIndex);
+                segment.objectsAt(subjectIndex, objects);
+                subjectIndex++;
 
+                if (filterObject != 0) {
+                    // Bound object - a membership test is enough, there is at most one match per subject
+                    if (objects.contains(filterObject)) {
+                        object = filterObject;
+                        return true;
+                    }
+                    continue;
+                }
+            }
+            object = objects.next();
             return true;
         }
-
-        return false;
     }
 
     @Override
     public void close() {
-        // nothing to close
-    }
-
-    private <T> Iterator<T> filterCollection(Collection<T> collection, Function<T, Value> filterMapper,
-            long filterValueId) {
-        if (filterValueId == 0) {
-            // No filter - return entire collection
-            return collection.iterator();
-        } else {
-            // Return only elements that match
-            Value filterString = entities.get(filterValueId);
-            return collection.stream()
-                    .filter(e -> filterMapper.apply(e).equals(filterString))
-                    .iterator();
-        }
+        // nothing to close, just mark the iterator as reusable
+        inUse = false;
     }
 }
@@ -21,6 +21,7 @@ public class ExamplePlugin extends PluginBase implements UpdateInterpreter, Prep
 	private static final String TIME_PREDICATE = PREFIX + "time";
 	private static final String GO_FUTURE_PREDICATE = PREFIX + "goInFuture";
 	private static final String GO_PAST_PREDICATE = PREFIX + "goInPast";
+	private static final String TIME_SERIES_PREFIX = PREFIX + "timeSeries/";
 
 	private int timeOffsetHrs = 0;
 
@@ -54,6 +55,15 @@ public class ExamplePlugin extends PluginBase implements UpdateInterpreter, Prep
 		getLogger().info("Example plugin initialized!");
 	}
 
+	/**
+	 * Returns the current time offset in hours so that other plugins can take it into account.
+	 *
+	 * @return the offset in hours
+	 */
+	int getTimeOffsetHrs() {
+		return timeOffsetHrs;
+	}
+
 	// UpdateInterpreter interface methods
 	@Override
 	public long[] getPredicatesToListenFor() {
@@ -99,24 +109,47 @@ public class ExamplePlugin extends PluginBase implements UpdateInterpreter, Prep
 			QueryRequest queryRequest = (QueryRequest) request;
 			Dataset dataset = queryRequest.getDataset();
 
-			// Check if the predicate is included in the default graph. This means that we have a "FROM <our_predicate>"
-			// clause in the SPARQL query.
-			if ((dataset != null && dataset.getDefaultGraphs().contains(timeIri))) {
-				// Create a date/time literal
-				Value literal = createDateTimeLiteral();
+			if (ExplainLog.isRequested(request)) {
+				// A "FROM <http://example.com/explain>" clause requests the explain mode. The other example plugins
+				// record what they do in the shared log, and we return it instead of the query results.
+				RequestContextImpl context = new RequestContextImpl();
+				ExplainLog.attach(request, context);
+
+				return context;
+			}
 
-				// Prepare a binding set with all projected variables set to the date/time literal value
-				MapBindingSet result = new MapBindingSet();
-				for (String bindingName : queryRequest.getTupleExpr().getBindingNames()) {
-					result.addBinding(bindingName, literal);
+			if (dataset != null) {
+				Iterator<BindingSet> bindings = null;
+				// Check if the predicate is included in the default graph. This means that we have a
+				// "FROM <our_predicate>" clause in the SPARQL query.
+				if (dataset.getDefaultGraphs().contains(timeIri)) {
+					// Create a date/time literal
+					Value literal = createDateTimeLiteral();
+
+					// Prepare a binding set with all projected variables set to the date/time literal value
+					MapBindingSet result = new MapBindingSet();
+					for (String bindingName : queryRequest.getTupleExpr().getBindingNames()) {
+						result.addBinding(bindingName, literal);
+					}
+					bindings = new SingletonIterator<>(result);
+				} else {
+					// A "FROM <http://example.com/timeSeries/N>" clause requests N rows, one per hour. The rows are
+					// produced lazily in the flush() phase so no matter how big N is they are never materialized.
+					Integer hours = getTimeSeriesHours(dataset);
+					if (hours != null) {
+						bindings = new TimeSeriesBindingIterator(queryRequest.getTupleExpr().getBindingNames(),
+								createOffsetCalendar(), hours);
+					}
 				}
 
-				// Create a Context object which will be available during the other phases of the request processing
-				// and set the created result as an attribute.
-				RequestContextImpl context = new RequestContextImpl();
-				context.setAttribute("bindings", result);
+				if (bindings != null) {
+					// Create a Context object which will be available during the other phases of the request
+					// processing and set the result source as an attribute.
+					RequestContextImpl context = new RequestContextImpl();
+					context.setAttribute("bindings", bindings);
 
-				return context;
+					return context;
+				}
 			}
 		}
 		// If we are not interested in the request there is no need to create a Context.
@@ -140,17 +173,49 @@ public class ExamplePlugin extends PluginBase implements UpdateInterpreter, Prep
 
 	@Override
 	public Iterator<BindingSet> flush(RequestContext requestContext) {
-		// Get the BindingSet we created in the Preprocess phase and return it.
-		// This will be returned as the query result.
-		BindingSet result = (BindingSet) ((RequestContextImpl) requestContext).getAttribute("bindings");
-		return new SingletonIterator<>(result);
+		ExplainLog explainLog = ExplainLog.get(requestContext);
+		if (explainLog != null) {
+			// Return what the plugins recorded while the query was evaluated
+			return explainLog.toBindingSets();
+		}
+
+		// Get the result source we created in the Preprocess phase and return it.
+		// This will be returned as the query result and consumed lazily.
+		@SuppressWarnings("unchecked")
+		Iterator<BindingSet> result = (Iterator<BindingSet>) ((RequestContextImpl) requestContext).getAttribute("bindings");
+		return result;
+	}
+
+	private Integer getTimeSeriesHours(Dataset dataset) {
+		for (IRI graph : dataset.getDefaultGraphs()) {
+			String graphString = graph.stringValue();
+			if (graphString.startsWith(TIME_SERIES_PREFIX)) {
+				String hoursString = graphString.substring(TIME_SERIES_PREFIX.length());
+				try {
+					int hours = Integer.parseInt(hoursString);
+					if (hours >= 0) {
+						return hours;
+					}
+				} catch (NumberFormatException e) {
+					// handled below
+				}
+				// Invalid input, propagate the error to the caller
+				throw new ClientErrorException("Invalid number of hours: " + hoursString);
+			}
+		}
+		return null;
 	}
 
 	private Literal createDateTimeLiteral() {
 		// Create a literal for the current timestamp.
+		return SimpleValueFactory.getInstance().createLiteral(createOffsetCalendar().getTime());
+	}
+
+	private Calendar createOffsetCalendar() {
+		// The current timestamp adjusted with the configured offset
 		Calendar calendar = Calendar.getInstance();
 		calendar.add(Calendar.HOUR, timeOffsetHrs);
 
-		return SimpleValueFactory.getInstance().createLiteral(calendar.getTime());
+		return calendar;
 	}
 }
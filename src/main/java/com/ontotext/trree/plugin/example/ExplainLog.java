@@ -0,0 +1,257 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.Entities;
+import com.ontotext.trree.sdk.QueryRequest;
+import com.ontotext.trree.sdk.Request;
+import com.ontotext.trree.sdk.RequestContext;
+import com.ontotext.trree.sdk.StatementIterator;
+import com.ontotext.trree.sdk.impl.RequestContextImpl;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collects what the example plugins did while evaluating a query in explain mode, enabled by adding
+ * FROM &lt;http://example.com/explain&gt; to the query.
+ * <p>
+ * For every plugin and pattern shape (which positions are bound) it records the distinct values returned by
+ * estimate(), the access path chosen by interpret(), the number of interpret() calls, the number of rows produced and
+ * the time spent iterating them. Estimates made while planning for positions that are bound but not yet known
+ * ({@link Entities#BOUND}) are kept apart from the estimates made for actual values, as they usually differ.
+ * {@link ExamplePlugin} returns these as the query result instead of the regular results.
+ * <p>
+ * All plugins processing the same request share the same log, looked up by the request object.
+ */
+class ExplainLog {
+    static final String EXPLAIN_GRAPH = "http://example.com/explain";
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final String ATTRIBUTE = "explain";
+
+    // Weak keys, so that a log is dropped together with its request even if it was never flushed
+    private static final Map<Request, ExplainLog> LOGS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Tells whether explain mode was requested, i.e. the request is a query with the explain graph in its dataset.
+     *
+     * @param request the request
+     * @return true if explain mode was requested
+     */
+    static boolean isRequested(Request request) {
+        if (request instanceof QueryRequest) {
+            Dataset dataset = ((QueryRequest) request).getDataset();
+            return dataset != null && dataset.getDefaultGraphs().contains(VF.createIRI(EXPLAIN_GRAPH));
+        }
+        return false;
+    }
+
+    /**
+     * Attaches the log of a request to a plugin's request context if explain mode was requested.
+     *
+     * @param request the request
+     * @param context the request context created by the plugin
+     */
+    static void attach(Request request, RequestContextImpl context) {
+        if (isRequested(request)) {
+            context.setAttribute(ATTRIBUTE, forRequest(request));
+        }
+    }
+
+    /**
+     * Returns the log of a request, creating it if needed.
+     *
+     * @param request the request
+     * @return the log
+     */
+    static ExplainLog forRequest(Request request) {
+        return LOGS.computeIfAbsent(request, r -> new ExplainLog());
+    }
+
+    /**
+     * Returns the log attached to a plugin's request context.
+     *
+     * @param requestContext the request context, may be null
+     * @return the log or null if not in explain mode
+     */
+    static ExplainLog get(RequestContext requestContext) {
+        if (requestContext instanceof RequestContextImpl) {
+            return (ExplainLog) ((RequestContextImpl) requestContext).getAttribute(ATTRIBUTE);
+        }
+        return null;
+    }
+
+    /**
+     * Describes the shape of a pattern: unbound positions as variables, bound ones (known or not) as parameters.
+     *
+     * @param subject   the subject ID, zero if unbound
+     * @param predicate the predicate IRI
+     * @param objects   the object IDs, zero if unbound
+     * @return the description
+     */
+    static String shape(long subject, String predicate, long... objects) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(subject == 0 ? "?s" : "$s").append(" <").append(predicate).append(">");
+        if (objects.length == 1) {
+            sb.append(objects[0] == 0 ? " ?o" : " $o");
+        } else {
+            sb.append(" (");
+            for (int i = 0; i < objects.length; i++) {
+                sb.append(i > 0 ? " " : "").append(objects[i] == 0 ? "?o" : "$o").append(i + 1);
+            }
+            sb.append(")");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tells whether any of the positions passed to estimate() is bound but not yet known.
+     *
+     * @param subject the subject ID
+     * @param objects the object IDs
+     * @return true if a position is {@link Entities#BOUND}
+     */
+    static boolean isBoundButUnknown(long subject, long... objects) {
+        if (subject == Entities.BOUND) {
+            return true;
+        }
+        for (long object : objects) {
+            if (object == Entities.BOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records a value returned by estimate().
+     *
+     * @param plugin          the name of the plugin
+     * @param shape           the shape of the pattern
+     * @param estimate        the estimate
+     * @param boundButUnknown true if some position was bound but not yet known, see {@link #isBoundButUnknown}
+     */
+    synchronized void recordEstimate(String plugin, String shape, double estimate, boolean boundButUnknown) {
+        Entry entry = entry(plugin, shape);
+        (boundButUnknown ? entry.boundEstimates : entry.estimates).add(estimate);
+    }
+
+    /**
+     * Records a call to interpret() and wraps the returned iterator so that its rows and time are recorded too.
+     *
+     * @param plugin     the name of the plugin
+     * @param shape      the shape of the pattern
+     * @param accessPath a short description of how the plugin evaluates the pattern
+     * @param iterator   the iterator returned by interpret()
+     * @return an iterator that should be returned instead
+     */
+    StatementIterator recordInterpret(String plugin, String shape, String accessPath, StatementIterator iterator) {
+        Entry entry;
+        synchronized (this) {
+            entry = entry(plugin, shape);
+            entry.accessPaths.add(accessPath);
+            entry.calls++;
+        }
+        return new StatementIterator() {
+            long rows;
+            long nanos;
+
+            @Override
+            public boolean next() {
+                long start = System.nanoTime();
+                boolean hasNext = iterator.next();
+                nanos += System.nanoTime() - start;
+                if (hasNext) {
+                    rows++;
+                    subject = iterator.subject;
+                    predicate = iterator.predicate;
+                    object = iterator.object;
+                    context = iterator.context;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+                synchronized (ExplainLog.this) {
+                    entry.rows += rows;
+                    entry.nanos += nanos;
+                }
+                rows = 0;
+                nanos = 0;
+            }
+        };
+    }
+
+    /**
+     * Returns the recorded entries as binding sets with the bindings plugin, pattern, estimate, boundEstimate,
+     * accessPath, calls, rows and timeMs. The estimates are comma-separated lists of the distinct values.
+     *
+     * @return the binding sets
+     */
+    synchronized Iterator<BindingSet> toBindingSets() {
+        List<BindingSet> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            MapBindingSet bindings = new MapBindingSet();
+            bindings.addBinding("plugin", VF.createLiteral(entry.plugin));
+            bindings.addBinding("pattern", VF.createLiteral(entry.shape));
+            if (!entry.estimates.isEmpty()) {
+                bindings.addBinding("estimate", VF.createLiteral(join(entry.estimates)));
+            }
+            if (!entry.boundEstimates.isEmpty()) {
+                bindings.addBinding("boundEstimate", VF.createLiteral(join(entry.boundEstimates)));
+            }
+            if (!entry.accessPaths.isEmpty()) {
+                bindings.addBinding("accessPath", VF.createLiteral(join(entry.accessPaths)));
+            }
+            bindings.addBinding("calls", VF.createLiteral(entry.calls));
+            bindings.addBinding("rows", VF.createLiteral(entry.rows));
+            bindings.addBinding("timeMs", VF.createLiteral(entry.nanos / 1_000_000.0));
+            result.add(bindings);
+        }
+        return result.iterator();
+    }
+
+    private static String join(Set<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(", "));
+    }
+
+    private Entry entry(String plugin, String shape) {
+        return entries.computeIfAbsent(plugin + " " + shape, k -> new Entry(plugin, shape));
+    }
+
+    /**
+     * The statistics for a plugin and pattern shape.
+     */
+    private static class Entry {
+        final String plugin;
+        final String shape;
+        // Estimates and access paths in the order they were first seen
+        final Set<Double> estimates = new LinkedHashSet<>();
+        final Set<Double> boundEstimates = new LinkedHashSet<>();
+        final Set<String> accessPaths = new LinkedHashSet<>();
+        long calls;
+        long rows;
+        long nanos;
+
+        Entry(String plugin, String shape) {
+            this.plugin = plugin;
+            this.shape = shape;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ontotext.trree.plugin.example;
 
 import com.ontotext.trree.sdk.PluginConnection;
 import com.ontotext.trree.sdk.PluginException;
+import com.ontotext.trree.sdk.RequestContext;
 import com.ontotext.trree.sdk.StatementIterator;
 
 /**
@@ -45,6 +46,21 @@ public interface FunctionalPattern {
         }
     }
 
+    /**
+     * Estimates the complexity of evaluating the functional pattern with the provided arguments. Lower values mean
+     * lesser complexity. The default implementation returns a constant 1.
+     * <p>
+     * Unlike {@link #evaluate(long[], PluginConnection)}, this method may be called with the special value
+     * {@link com.ontotext.trree.sdk.Entities#BOUND} for any of the arguments.
+     *
+     * @param arguments        the arguments as entity IDs
+     * @param pluginConnection the plugin connection used to call the functional pattern
+     * @return the estimated complexity
+     */
+    default double estimate(long[] arguments, PluginConnection pluginConnection) {
+        return 1;
+    }
+
     /**
      * Evaluates the functional pattern with the provided arguments.
      *
@@ -53,4 +69,19 @@ public interface FunctionalPattern {
      * @return a {@link StatementIterator} that must bind the output of the functional pattern as the subject
      */
     StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection);
+
+    /**
+     * Evaluates the functional pattern with the provided arguments within a request. Override this to keep state
+     * that can be reused by all evaluations in the same request. The default implementation calls
+     * {@link #evaluate(long[], PluginConnection)}.
+     *
+     * @param arguments        the arguments as entity IDs
+     * @param pluginConnection the plugin connection used to call the functional pattern
+     * @param requestContext   the context of the current request, may be null
+     * @return a {@link StatementIterator} that must bind the output of the functional pattern as the subject
+     */
+    default StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection,
+            RequestContext requestContext) {
+        return evaluate(arguments, pluginConnection);
+    }
 }
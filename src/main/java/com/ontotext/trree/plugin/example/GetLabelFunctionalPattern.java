@@ -1,21 +1,59 @@
 package com.ontotext.trree.plugin.example;
 
+import com.ontotext.trree.sdk.Entities;
 import com.ontotext.trree.sdk.PluginConnection;
+import com.ontotext.trree.sdk.RequestContext;
 import com.ontotext.trree.sdk.StatementIterator;
+import com.ontotext.trree.sdk.impl.RequestContextImpl;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.util.Literals;
 import org.eclipse.rdf4j.model.vocabulary.XSD;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Implements the http://example.com/getLabel functional pattern.
+ * <p>
+ * It can also be registered with automatic language fallback (http://example.com/getLabelWithFallback), where each
+ * requested language tag is expanded to its BCP-47 truncation chain, e.g. "pt-BR" is tried as "pt-BR" and then "pt".
+ * The truncated tags are tried only after all requested tags.
+ * <p>
+ * The list of languages to try is computed once per query and the labels of a resource are scanned only once,
+ * ranking each label by the first language it matches.
  */
 public class GetLabelFunctionalPattern implements FunctionalPattern {
+    private final String iri;
+    private final boolean fallback;
+
+    /**
+     * Creates the http://example.com/getLabel functional pattern.
+     */
+    public GetLabelFunctionalPattern() {
+        this("http://example.com/getLabel", false);
+    }
+
+    /**
+     * Creates a getLabel functional pattern with a custom IRI.
+     *
+     * @param iri      the IRI of the functional pattern
+     * @param fallback true to expand the language tags to their BCP-47 truncation chains
+     */
+    public GetLabelFunctionalPattern(String iri, boolean fallback) {
+        this.iri = iri;
+        this.fallback = fallback;
+    }
+
     @Override
     public String getIRI() {
-        return "http://example.com/getLabel";
+        return iri;
     }
 
     @Override
@@ -29,74 +67,148 @@ public class GetLabelFunctionalPattern implements FunctionalPattern {
     }
 
     @Override
-    public StatementIterator evaluate(long[] languageIds, PluginConnection pluginConnection) {
-        return new StatementIterator() {
-            final long subjectId = languageIds[0];
-            final long labelPredicateId = languageIds[1];
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection) {
+        return evaluate(arguments, pluginConnection, null);
+    }
 
-            int languageIndex = 0;
-            String language;
-            boolean lockLanguage;
-            StatementIterator iter;
+    @Override
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection,
+            RequestContext requestContext) {
+        String[] languages = getLanguages(arguments, pluginConnection.getEntities(), requestContext);
 
-            private boolean languageMatches(Literal label) {
-                if (language.isEmpty() && label.getDatatype().equals(XSD.STRING)) {
-                    return true;
-                }
-                Optional<String> labelLanguage = label.getLanguage();
-                return labelLanguage.isPresent() && Literals.langMatches(labelLanguage.get(), language);
-            }
+        return new StatementIterator() {
+            final long subjectId = arguments[0];
+            final long labelPredicateId = arguments[1];
+
+            LongArrayList labels;
+            int labelIndex;
 
             @Override
             public boolean next() {
-                if (language == null) {
-                    if (languageIndex + 2 < languageIds.length) {
-                        // one of the languages in the list
-                        language = pluginConnection.getEntities().get(languageIds[languageIndex + 2]).stringValue();
-                    } else if (languageIndex + 2 <= languageIds.length) {
-                        // last resort, an xsd:string literal - represented simply as an empty language tag
-                        language = "";
-                    } else {
-                        // no more languages to try
-                        return false;
-                    }
-                    if (iter != null) {
-                        // Don't forget to close an iterator when you ditch it!
-                        iter.close();
-                    }
-                    iter = pluginConnection.getStatements().get(subjectId, labelPredicateId, 0);
-                    languageIndex++;
+                if (labels == null) {
+                    labels = findBestLabels();
+                }
+                if (labelIndex < labels.size()) {
+                    // Bind the matching label as the subject of this iterator
+                    subject = labels.get(labelIndex++);
+                    return true;
                 }
+                return false;
+            }
 
-                while (iter.next()) {
-                    Value label = pluginConnection.getEntities().get(iter.object);
-                    if (label instanceof Literal) {
-                        if (languageMatches((Literal) label)) {
-                            // Found a matching language, bind the matching label as the subject of this iterator
-                            subject = iter.object;
-                            // Raise flag to lock language so the iterator will loop through all remaining labels
-                            // that have the same language.
-                            lockLanguage = true;
-                            return true;
+            private LongArrayList findBestLabels() {
+                // Scan all labels once and keep the ones matching the most preferred language
+                LongArrayList best = new LongArrayList();
+                int bestRank = languages.length;
+                StatementIterator iter = pluginConnection.getStatements().get(subjectId, labelPredicateId, 0);
+                try {
+                    while (iter.next()) {
+                        Value label = pluginConnection.getEntities().get(iter.object);
+                        if (label instanceof Literal) {
+                            int rank = rank((Literal) label, languages, bestRank);
+                            if (rank < bestRank) {
+                                bestRank = rank;
+                                best.clear();
+                            }
+                            if (rank == bestRank && rank < languages.length) {
+                                best.add(iter.object);
+                            }
                         }
                     }
+                } finally {
+                    // Don't forget to close an iterator when you are done with it!
+                    iter.close();
                 }
-
-                if (!lockLanguage) {
-                    // Didn't find any label for the currently requested language, reset and retry with next language
-                    language = null;
-                    return next();
-                }
-
-                return false;
+                return best;
             }
 
             @Override
             public void close() {
-                if (iter != null) {
-                    iter.close();
-                }
+                // nothing to close, the label iterator is closed as soon as the labels are scanned
             }
         };
     }
+
+    private static int rank(Literal label, String[] languages, int limit) {
+        // Only languages that are at least as preferred as the current best one are of interest
+        for (int i = 0; i < limit; i++) {
+            if (languageMatches(label, languages[i])) {
+                return i;
+            }
+        }
+        return languages.length;
+    }
+
+    private static boolean languageMatches(Literal label, String language) {
+        if (language.isEmpty()) {
+            // an xsd:string literal - represented simply as an empty language tag
+            return label.getDatatype().equals(XSD.STRING);
+        }
+        Optional<String> labelLanguage = label.getLanguage();
+        return labelLanguage.isPresent() && Literals.langMatches(labelLanguage.get(), language);
+    }
+
+    private String[] getLanguages(long[] arguments, Entities entities, RequestContext requestContext) {
+        long[] languageIds = Arrays.copyOfRange(arguments, 2, arguments.length);
+        if (!(requestContext instanceof RequestContextImpl)) {
+            return resolveLanguages(languageIds, entities);
+        }
+
+        // The languages are usually the same for every resource in a query, so remember the last ones per request
+        RequestContextImpl context = (RequestContextImpl) requestContext;
+        String attribute = "languages:" + iri;
+        Object[] cached = (Object[]) context.getAttribute(attribute);
+        if (cached == null || !Arrays.equals((long[]) cached[0], languageIds)) {
+            cached = new Object[] {languageIds, resolveLanguages(languageIds, entities)};
+            context.setAttribute(attribute, cached);
+        }
+        return (String[]) cached[1];
+    }
+
+    private String[] resolveLanguages(long[] languageIds, Entities entities) {
+        // Deduplicate case-insensitively, keeping the first occurrence
+        Map<String, String> languages = new LinkedHashMap<>();
+        List<String> truncated = new ArrayList<>();
+        for (long languageId : languageIds) {
+            String language = entities.get(languageId).stringValue();
+            languages.putIfAbsent(language.toLowerCase(Locale.ROOT), language);
+            if (fallback) {
+                List<String> chain = truncationChain(language);
+                truncated.addAll(chain.subList(1, chain.size()));
+            }
+        }
+        // The truncated tags come after all requested tags. A truncated tag matches more labels than the tag it comes
+        // from (e.g. "pt" matches "pt-AO"), so it must not hide a more specific tag requested later.
+        for (String tag : truncated) {
+            languages.putIfAbsent(tag.toLowerCase(Locale.ROOT), tag);
+        }
+        // last resort, an xsd:string literal - represented simply as an empty language tag
+        languages.putIfAbsent("", "");
+        return languages.values().toArray(new String[0]);
+    }
+
+    /**
+     * Returns the BCP-47 truncation chain of a language tag as described by the lookup scheme in RFC 4647, e.g.
+     * "zh-Hant-CN-x-private" becomes "zh-Hant-CN-x-private", "zh-Hant-CN", "zh-Hant", "zh".
+     *
+     * @param language the language tag
+     * @return the chain, starting with the tag itself
+     */
+    static List<String> truncationChain(String language) {
+        List<String> chain = new ArrayList<>();
+        String tag = language;
+        while (!tag.isEmpty()) {
+            chain.add(tag);
+            int dash = tag.lastIndexOf('-');
+            if (dash < 0) {
+                break;
+            }
+            tag = tag.substring(0, dash);
+            // Also drop a single-character subtag (e.g. "x" in "en-x-private") left at the end
+            if (tag.length() >= 2 && tag.charAt(tag.length() - 2) == '-') {
+                tag = tag.substring(0, tag.length() - 2);
+            }
+        }
+        return chain;
+    }
 }
@@ -0,0 +1,139 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.Entities;
+import com.ontotext.trree.sdk.PluginConnection;
+import com.ontotext.trree.sdk.RequestContext;
+import com.ontotext.trree.sdk.StatementIterator;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Literals;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Implements functional patterns that aggregate the labels of a resource into a single integer without returning
+ * the labels themselves:
+ * <pre>
+ *     ?count <http://example.com/labelCount> (?resource ?labelPredicate)
+ *     ?count <http://example.com/languageCount> (?resource ?labelPredicate)
+ *     ?mask <http://example.com/languageCoverage> (?resource ?labelPredicate ?lang1 ...)
+ * </pre>
+ * <p>
+ * labelCount is the number of literal labels, languageCount is the number of distinct language tags (compared
+ * case-insensitively) and languageCoverage is a bit mask where bit i is set if at least one label matches the i-th
+ * language tag (using the same logic as the SPARQL langMatches() function).
+ * <p>
+ * The labels are aggregated while scanning the label statements, only the language tag of each label is inspected
+ * and nothing but the counters is kept, so a single row per resource is returned instead of all of its labels.
+ */
+public class LabelAggregateFunctionalPattern implements FunctionalPattern {
+    /**
+     * The supported aggregates.
+     */
+    public enum Aggregate {
+        LABEL_COUNT("http://example.com/labelCount"),
+        LANGUAGE_COUNT("http://example.com/languageCount"),
+        LANGUAGE_COVERAGE("http://example.com/languageCoverage");
+
+        final String iri;
+
+        Aggregate(String iri) {
+            this.iri = iri;
+        }
+    }
+
+    // Bits in the coverage mask
+    private static final int MAX_COVERAGE_LANGUAGES = 63;
+
+    private final Aggregate aggregate;
+
+    /**
+     * Creates a new aggregate functional pattern.
+     *
+     * @param aggregate the aggregate to compute
+     */
+    public LabelAggregateFunctionalPattern(Aggregate aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    @Override
+    public String getIRI() {
+        return aggregate.iri;
+    }
+
+    @Override
+    public int getMinArguments() {
+        return aggregate == Aggregate.LANGUAGE_COVERAGE ? 3 : 2;
+    }
+
+    @Override
+    public int getMaxArguments() {
+        return aggregate == Aggregate.LANGUAGE_COVERAGE ? MAX_COVERAGE_LANGUAGES + 2 : 2;
+    }
+
+    @Override
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection) {
+        return evaluate(arguments, pluginConnection, null);
+    }
+
+    @Override
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection,
+            RequestContext requestContext) {
+        Entities entities = pluginConnection.getEntities();
+        String[] languages = new String[arguments.length - 2];
+        for (int i = 0; i < languages.length; i++) {
+            languages[i] = entities.get(arguments[i + 2]).stringValue();
+        }
+
+        long labelCount = 0;
+        Set<String> distinctLanguages = new HashSet<>();
+        long coverage = 0;
+
+        StatementIterator iter = pluginConnection.getStatements().get(arguments[0], arguments[1], 0);
+        try {
+            while (iter.next()) {
+                Value label = entities.get(iter.object);
+                if (!(label instanceof Literal)) {
+                    continue;
+                }
+                labelCount++;
+                Optional<String> language = ((Literal) label).getLanguage();
+                if (language.isPresent()) {
+                    if (aggregate == Aggregate.LANGUAGE_COUNT) {
+                        distinctLanguages.add(language.get().toLowerCase(Locale.ROOT));
+                    } else if (aggregate == Aggregate.LANGUAGE_COVERAGE) {
+                        for (int i = 0; i < languages.length; i++) {
+                            if (Literals.langMatches(language.get(), languages[i])) {
+                                coverage |= 1L << i;
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            iter.close();
+        }
+
+        long result;
+        switch (aggregate) {
+            case LABEL_COUNT:
+                result = labelCount;
+                break;
+            case LANGUAGE_COUNT:
+                result = distinctLanguages.size();
+                break;
+            default:
+                result = coverage;
+        }
+
+        // Bind the result as the subject, the literal is needed only for the current request. The same few numbers
+        // repeat for many resources so they are registered only once per request.
+        long resultId = RequestEntities.forRequest(requestContext)
+                .put(SimpleValueFactory.getInstance().createLiteral(result), entities);
+        return StatementIterator.create(resultId, 0, 0, 0);
+    }
+}
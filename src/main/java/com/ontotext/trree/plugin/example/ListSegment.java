@@ -0,0 +1,280 @@
+package com.ontotext.trree.plugin.example;
+
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds a segment of the data served by the http://example.com/list predicate as entity IDs in primitive arrays.
+ * <p>
+ * Subjects are kept sorted so that a bound subject can be found with a binary search. The object IDs of each subject
+ * are sorted and stored compressed in a single byte array: every ID is written as the difference to the previous one
+ * using a variable-byte encoding (7 bits per byte, the high bit marks that more bytes follow). Small gaps between IDs
+ * take a single byte instead of eight. The objects are decoded on the fly with an {@link ObjectCursor}.
+ * <p>
+ * Bloom filters over the subjects and over the subject/object pairs allow rejecting most bound patterns that have no
+ * match without looking at the data at all.
+ * <p>
+ * The segment is immutable once created, changes are applied by creating new segments from
+ * {@link #entriesWith(long[], long[], boolean[], int, int)}.
+ */
+class ListSegment {
+    private static final int MAX_VAR_LONG_BYTES = 10;
+
+    private final long[] subjects;
+    // The encoded objects of subject i span from objectOffsets[i] (inclusive) to objectOffsets[i + 1] (exclusive)
+    private final int[] objectOffsets;
+    private final byte[] objectData;
+    private final LongBloomFilter subjectFilter;
+    private final LongBloomFilter pairFilter;
+
+    private ListSegment(long[] subjects, int[] objectOffsets, byte[] objectData) {
+        this.subjects = subjects;
+        this.objectOffsets = objectOffsets;
+        this.objectData = objectData;
+
+        subjectFilter = new LongBloomFilter(subjects.length);
+        pairFilter = new LongBloomFilter(objectData.length); // at least one byte per pair
+        ObjectCursor cursor = new ObjectCursor();
+        for (int i = 0; i < subjects.length; i++) {
+            subjectFilter.add(subjects[i]);
+            objectsAt(i, cursor);
+            while (cursor.hasNext()) {
+                pairFilter.add(LongBloomFilter.combine(subjects[i], cursor.next()));
+            }
+        }
+    }
+
+    /**
+     * Creates a segment from a set of entries.
+     *
+     * @param entries the entries sorted by subject, each entry is the subject ID followed by the sorted object IDs
+     * @return a new segment
+     */
+    static ListSegment of(long[][] entries) {
+        long[] subjects = new long[entries.length];
+        int[] objectOffsets = new int[entries.length + 1];
+        byte[] objectData = new byte[16];
+        int position = 0;
+        for (int i = 0; i < entries.length; i++) {
+            subjects[i] = entries[i][0];
+            objectOffsets[i] = position;
+            long previous = 0;
+            for (int j = 1; j < entries[i].length; j++) {
+                if (position + MAX_VAR_LONG_BYTES > objectData.length) {
+                    objectData = Arrays.copyOf(objectData, objectData.length * 2);
+                }
+                // Unsigned arithmetic, so this works even if IDs are negative
+                position = writeVarLong(objectData, position, entries[i][j] - previous);
+                previous = entries[i][j];
+            }
+        }
+        objectOffsets[entries.length] = position;
+        return new ListSegment(subjects, objectOffsets, Arrays.copyOf(objectData, position));
+    }
+
+    private static int writeVarLong(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Returns the entries of this segment with a batch of changes applied. The segment is decoded once and the
+     * changes are merged in a single pass, so the cost doesn't depend on the number of changes per subject.
+     *
+     * @param subjects  the subject IDs of the changes, sorted
+     * @param objects   the object IDs of the changes, sorted for the same subject
+     * @param additions true for the changes that add a pair, false for the ones that remove it
+     * @param from      the first change to apply (inclusive)
+     * @param to        the last change to apply (exclusive)
+     * @return the new entries sorted by subject, in the format accepted by {@link #of(long[][])}
+     */
+    long[][] entriesWith(long[] subjects, long[] objects, boolean[] additions, int from, int to) {
+        List<long[]> entries = new ArrayList<>(this.subjects.length + to - from);
+        ObjectCursor cursor = new ObjectCursor();
+        LongArrayList current = new LongArrayList();
+        LongArrayList merged = new LongArrayList();
+        int index = 0;
+        int change = from;
+        while (index < this.subjects.length || change < to) {
+            long subject = change == to || index < this.subjects.length && this.subjects[index] < subjects[change]
+                    ? this.subjects[index] : subjects[change];
+
+            current.clear();
+            if (index < this.subjects.length && this.subjects[index] == subject) {
+                objectsAt(index++, cursor);
+                while (cursor.hasNext()) {
+                    current.add(cursor.next());
+                }
+            }
+            if (change < to && subjects[change] == subject) {
+                // Merge the sorted objects with the sorted changes of the subject
+                merged.clear();
+                int objectIndex = 0;
+                for (; change < to && subjects[change] == subject; change++) {
+                    long object = objects[change];
+                    while (objectIndex < current.size() && current.get(objectIndex) < object) {
+                        merged.add(current.get(objectIndex++));
+                    }
+                    if (objectIndex < current.size() && current.get(objectIndex) == object) {
+                        // Already present, added back below only if this is not a removal
+                        objectIndex++;
+                    }
+                    if (additions[change]) {
+                        merged.add(object);
+                    }
+                }
+                while (objectIndex < current.size()) {
+                    merged.add(current.get(objectIndex++));
+                }
+                LongArrayList swap = current;
+                current = merged;
+                merged = swap;
+            }
+
+            // A subject without objects is dropped
+            if (!current.isEmpty()) {
+                long[] entry = new long[current.size() + 1];
+                entry[0] = subject;
+                for (int i = 0; i < current.size(); i++) {
+                    entry[i + 1] = current.get(i);
+                }
+                entries.add(entry);
+            }
+        }
+        return entries.toArray(new long[0][]);
+    }
+
+    /**
+     * Returns the number of subjects in the segment.
+     *
+     * @return the number of subjects
+     */
+    int size() {
+        return subjects.length;
+    }
+
+    /**
+     * Tells whether the segment may have values for a subject.
+     *
+     * @param subject the subject ID
+     * @return false if the subject is definitely not in the segment
+     */
+    boolean mightContain(long subject) {
+        return subjectFilter.mightContain(subject);
+    }
+
+    /**
+     * Tells whether the segment may have a given subject/object pair.
+     *
+     * @param subject the subject ID
+     * @param object  the object ID
+     * @return false if the pair is definitely not in the segment
+     */
+    boolean mightContain(long subject, long object) {
+        return pairFilter.mightContain(LongBloomFilter.combine(subject, object));
+    }
+
+    /**
+     * Returns the index of a subject or a negative value if the subject is not in the segment.
+     *
+     * @param subject the subject ID
+     * @return the index of the subject
+     */
+    int indexOf(long subject) {
+        return Arrays.binarySearch(subjects, subject);
+    }
+
+    /**
+     * Returns the subject ID at a given index.
+     *
+     * @param index the index
+     * @return the subject ID
+     */
+    long subjectAt(int index) {
+        return subjects[index];
+    }
+
+    /**
+     * Positions a cursor at the beginning of the objects of the subject at a given index.
+     *
+     * @param index  the index
+     * @param cursor the cursor to reuse
+     * @return the cursor
+     */
+    ObjectCursor objectsAt(int index, ObjectCursor cursor) {
+        cursor.data = objectData;
+        cursor.position = objectOffsets[index];
+        cursor.end = objectOffsets[index + 1];
+        cursor.previous = 0;
+        return cursor;
+    }
+
+    /**
+     * A reusable cursor that decodes the sorted object IDs of a single subject.
+     */
+    static class ObjectCursor {
+        private byte[] data;
+        private int position;
+        private int end;
+        private long previous;
+
+        /**
+         * Tells whether there are more object IDs.
+         *
+         * @return true if {@link #next()} can be called
+         */
+        boolean hasNext() {
+            return position < end;
+        }
+
+        /**
+         * Decodes the next object ID.
+         *
+         * @return the object ID
+         */
+        long next() {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += delta;
+            return previous;
+        }
+
+        /**
+         * Skips all remaining object IDs.
+         */
+        void skipAll() {
+            position = end;
+        }
+
+        /**
+         * Tells whether the remaining object IDs contain a given ID. The IDs are sorted so this stops as soon as
+         * a larger ID is decoded. The cursor is exhausted afterwards.
+         *
+         * @param objectId the ID to look for
+         * @return true if the ID was found
+         */
+        boolean contains(long objectId) {
+            while (hasNext()) {
+                long current = next();
+                if (current >= objectId) {
+                    skipAll();
+                    return current == objectId;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.Entities;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable version of the data served by the http://example.com/list predicate.
+ * <p>
+ * The subjects are split into {@link ListSegment}s of up to a few hundred consecutive subjects, no matter how sparse
+ * their IDs are. A batch of changes creates a new version that rebuilds only the affected segments, each of them
+ * once, and shares all other segments with the previous version, so versions are cheap to create and can be read
+ * concurrently without any locking.
+ */
+class ListStore {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final ListSegment EMPTY_SEGMENT = ListSegment.of(new long[0][]);
+
+    // The number of subjects in a newly built segment and the number above which a changed segment is split
+    static final int SEGMENT_SUBJECTS = 512;
+    private static final int MAX_SEGMENT_SUBJECTS = SEGMENT_SUBJECTS * 2;
+
+    // The first subject ID of each segment, used to find the segment that covers a subject
+    private final long[] firstSubjects;
+    private final ListSegment[] segments;
+    private final int size;
+
+    private ListStore(ListSegment[] segments) {
+        this.segments = segments;
+        firstSubjects = new long[segments.length];
+        int size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            firstSubjects[i] = segments[i].subjectAt(0);
+            size += segments[i].size();
+        }
+        this.size = size;
+    }
+
+    /**
+     * Creates the store with the example data. The values are added to the entity pool with the SYSTEM scope so that
+     * their IDs are stable and there is no need to resolve them for every request.
+     *
+     * @param entities the entity pool
+     * @return a new store
+     */
+    static ListStore create(Entities entities) {
+        // Initialize the data as a simple mapping from subject to multiple object values associated
+        // with the subject.
+        Map<Value, List<Value>> data = new LinkedHashMap<>();
+        data.put(VF.createIRI("http://example.com/iri1"),
+                Arrays.asList(VF.createLiteral("a"), VF.createLiteral("b")));
+        data.put(VF.createIRI("http://example.com/iri2"),
+                Arrays.asList(VF.createLiteral("a"), VF.createLiteral("c")));
+
+        long[][] entries = new long[data.size()][];
+        int i = 0;
+        for (Map.Entry<Value, List<Value>> entry : data.entrySet()) {
+            // The first element of each entry is the subject, followed by the sorted objects
+            long[] ids = new long[entry.getValue().size() + 1];
+            ids[0] = entities.put(entry.getKey(), Entities.Scope.SYSTEM);
+            for (int j = 0; j < entry.getValue().size(); j++) {
+                ids[j + 1] = entities.put(entry.getValue().get(j), Entities.Scope.SYSTEM);
+            }
+            Arrays.sort(ids, 1, ids.length);
+            entries[i++] = ids;
+        }
+        Arrays.sort(entries, (e1, e2) -> Long.compare(e1[0], e2[0]));
+        return of(entries);
+    }
+
+    /**
+     * Creates a store from a set of entries.
+     *
+     * @param entries the entries sorted by subject, each entry is the subject ID followed by the sorted object IDs
+     * @return a new store
+     */
+    static ListStore of(long[][] entries) {
+        List<ListSegment> segments = new ArrayList<>();
+        addSegments(segments, entries, SEGMENT_SUBJECTS);
+        return new ListStore(segments.toArray(new ListSegment[0]));
+    }
+
+    private static void addSegments(List<ListSegment> segments, long[][] entries, int maxSubjects) {
+        if (entries.length == 0) {
+            return;
+        }
+        // Split evenly in as few segments as possible
+        int count = (entries.length + maxSubjects - 1) / maxSubjects;
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) entries.length * i / count);
+            int to = (int) ((long) entries.length * (i + 1) / count);
+            segments.add(ListSegment.of(Arrays.copyOfRange(entries, from, to)));
+        }
+    }
+
+    /**
+     * Returns a new version of the store with a batch of changes applied. Every affected segment is rebuilt once,
+     * and split if it grew too large, all other segments are shared with this version.
+     *
+     * @param changes the changes
+     * @return the new version, or this version if there are no changes
+     */
+    ListStore with(Changes changes) {
+        Changes.Sorted sorted = changes.sorted();
+        if (sorted.size == 0) {
+            return this;
+        }
+
+        List<ListSegment> newSegments = new ArrayList<>(segments.length + 1);
+        if (segments.length == 0) {
+            addSegments(newSegments, EMPTY_SEGMENT.entriesWith(sorted.subjects, sorted.objects, sorted.additions,
+                    0, sorted.size), SEGMENT_SUBJECTS);
+        }
+        int from = 0;
+        for (int i = 0; i < segments.length; i++) {
+            // The changes for subjects before the first subject of the next segment belong to this segment
+            int to = from;
+            if (i == segments.length - 1) {
+                to = sorted.size;
+            } else {
+                while (to < sorted.size && sorted.subjects[to] < firstSubjects[i + 1]) {
+                    to++;
+                }
+            }
+            if (to == from) {
+                newSegments.add(segments[i]);
+            } else {
+                long[][] entries = segments[i].entriesWith(sorted.subjects, sorted.objects, sorted.additions,
+                        from, to);
+                // An empty segment is dropped, a segment that grew too large is split
+                addSegments(newSegments, entries,
+                        entries.length > MAX_SEGMENT_SUBJECTS ? SEGMENT_SUBJECTS : MAX_SEGMENT_SUBJECTS);
+                from = to;
+            }
+        }
+        return new ListStore(newSegments.toArray(new ListSegment[0]));
+    }
+
+    /**
+     * Returns the number of subjects in the store.
+     *
+     * @return the number of subjects
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of segments in the store.
+     *
+     * @return the number of segments
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Returns the segment at a given index. Segments are ordered by the subject IDs they contain.
+     *
+     * @param index the index
+     * @return the segment
+     */
+    ListSegment segmentAt(int index) {
+        return segments[index];
+    }
+
+    /**
+     * Returns the index of the segment that may contain a subject or a negative value if the store is empty.
+     *
+     * @param subject the subject ID
+     * @return the index of the segment
+     */
+    int segmentIndexOf(long subject) {
+        if (segments.length == 0) {
+            return -1;
+        }
+        // The last segment whose first subject is not greater than the subject, or the first segment
+        int index = Arrays.binarySearch(firstSubjects, subject);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    /**
+     * Splits the store into contiguous ranges of segments with about the same number of subjects that can be scanned
+     * independently. Range i spans the segment indexes from bounds[i] (inclusive) to bounds[i + 1] (exclusive).
+     *
+     * @param partitions the desired number of ranges
+     * @return the range bounds, at most partitions + 1 values
+     */
+    int[] partition(int partitions) {
+        int ranges = Math.max(1, Math.min(partitions, segments.length));
+        int[] bounds = new int[ranges + 1];
+        int range = 1;
+        long subjects = 0;
+        for (int i = 0; i < segments.length && range < ranges; i++) {
+            subjects += segments[i].size();
+            // Close the current range once it has its share of the subjects
+            if (subjects * ranges >= (long) size * range) {
+                bounds[range++] = i + 1;
+            }
+        }
+        // Very uneven segments may leave the last ranges empty
+        Arrays.fill(bounds, range, ranges + 1, segments.length);
+        return bounds;
+    }
+
+    /**
+     * Tells whether the store may have values for a subject.
+     *
+     * @param subject the subject ID
+     * @return false if the subject is definitely not in the store
+     */
+    boolean mightContain(long subject) {
+        int index = segmentIndexOf(subject);
+        return index >= 0 && segments[index].mightContain(subject);
+    }
+
+    /**
+     * Tells whether the store may have a given subject/object pair.
+     *
+     * @param subject the subject ID
+     * @param object  the object ID
+     * @return false if the pair is definitely not in the store
+     */
+    boolean mightContain(long subject, long object) {
+        int index = segmentIndexOf(subject);
+        return index >= 0 && segments[index].mightContain(subject, object);
+    }
+
+    /**
+     * Collects the changes made by a transaction so that they can be applied at once with {@link #with(Changes)}.
+     * When the same pair is changed more than once the last change wins.
+     */
+    static class Changes {
+        private final LongArrayList subjects = new LongArrayList();
+        private final LongArrayList objects = new LongArrayList();
+        private final BitSet additions = new BitSet();
+
+        /**
+         * Records a change.
+         *
+         * @param subject    the subject ID
+         * @param object     the object ID
+         * @param isAddition true to add the pair, false to remove it
+         */
+        void add(long subject, long object, boolean isAddition) {
+            additions.set(subjects.size(), isAddition);
+            subjects.add(subject);
+            objects.add(object);
+        }
+
+        /**
+         * Returns the number of recorded changes.
+         *
+         * @return the number of changes
+         */
+        int size() {
+            return subjects.size();
+        }
+
+        private Sorted sorted() {
+            // Sort by subject and object, keeping the order of the changes to the same pair
+            Integer[] order = new Integer[subjects.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i1, i2) -> {
+                int result = Long.compare(subjects.get(i1), subjects.get(i2));
+                return result != 0 ? result : Long.compare(objects.get(i1), objects.get(i2));
+            });
+
+            Sorted sorted = new Sorted(order.length);
+            for (int i = 0; i < order.length; i++) {
+                int change = order[i];
+                boolean sameAsPrevious = sorted.size > 0 && sorted.subjects[sorted.size - 1] == subjects.get(change)
+                        && sorted.objects[sorted.size - 1] == objects.get(change);
+                if (!sameAsPrevious) {
+                    sorted.size++;
+                }
+                sorted.subjects[sorted.size - 1] = subjects.get(change);
+                sorted.objects[sorted.size - 1] = objects.get(change);
+                sorted.additions[sorted.size - 1] = additions.get(change);
+            }
+            return sorted;
+        }
+
+        /**
+         * The changes sorted by subject and object with at most one change per pair.
+         */
+        private static class Sorted {
+            final long[] subjects;
+            final long[] objects;
+            final boolean[] additions;
+            int size;
+
+            Sorted(int capacity) {
+                subjects = new long[capacity];
+                objects = new long[capacity];
+                additions = new boolean[capacity];
+            }
+        }
+    }
+}
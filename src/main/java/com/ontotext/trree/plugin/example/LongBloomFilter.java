@@ -0,0 +1,79 @@
+package com.ontotext.trree.plugin.example;
+
+/**
+ * A compact probabilistic set of long keys (e.g. entity IDs).
+ * <p>
+ * {@link #mightContain(long)} never returns false for a key that was added, but may return true for a key that was
+ * not added. With the default of 10 bits per key the false positive rate is about 1%. A lookup costs one hash and
+ * a few bit tests in a single long array.
+ */
+class LongBloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int NUM_HASHES = 7;
+
+    private final long[] bits;
+    private final long numBits;
+
+    /**
+     * Creates an empty filter sized for the expected number of keys.
+     *
+     * @param expectedKeys the expected number of keys
+     */
+    LongBloomFilter(int expectedKeys) {
+        long words = Math.max(1, ((long) Math.max(1, expectedKeys) * BITS_PER_KEY + 63) / 64);
+        bits = new long[(int) Math.min(words, Integer.MAX_VALUE)];
+        numBits = (long) bits.length * 64;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key
+     */
+    void add(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % numBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Tells whether a key may have been added.
+     *
+     * @param key the key
+     * @return false if the key was definitely not added, true if it probably was
+     */
+    boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % numBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Combines two keys into a single key, e.g. for adding subject/object pairs.
+     *
+     * @param key1 the first key
+     * @param key2 the second key
+     * @return the combined key
+     */
+    static long combine(long key1, long key2) {
+        return mix(key1) * 31 + key2;
+    }
+
+    private static long mix(long key) {
+        // The finalizer of SplitMix64, spreads consecutive IDs over all bits
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+}
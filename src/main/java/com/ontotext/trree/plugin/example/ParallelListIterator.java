@@ -0,0 +1,258 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.PluginException;
+import com.ontotext.trree.sdk.StatementIterator;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link StatementIterator} that enumerates the entire {@link ListStore} by scanning several partitions of the
+ * store (ranges of segments) concurrently.
+ * <p>
+ * Each partition is scanned by a resumable {@link Scanner} that hands off chunks of subject/object pairs to the
+ * iterator via a lock-free queue. The number of chunks waiting in the queue is bounded, but the executor threads never
+ * wait for the consumer: a task that finds the queue full pauses its scanner and returns, and the iterator resubmits
+ * paused scanners as the queue drains. When the queue is empty the consuming thread scans a partition that is not
+ * being scanned by itself, so the iteration always makes progress even if the executor is busy with other queries.
+ * <p>
+ * The order of the results is not guaranteed.
+ */
+class ParallelListIterator extends StatementIterator {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int MAX_QUEUED_CHUNKS = 64;
+    private static final long PARK_NANOS = 10_000;
+
+    private final ConcurrentLinkedQueue<Chunk> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedChunks = new AtomicInteger();
+    private final AtomicInteger finishedScanners = new AtomicInteger();
+    private final Scanner[] scanners;
+    private final Executor executor;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    private Chunk chunk;
+    private int chunkIndex;
+
+    ParallelListIterator(ListStore store, int partitions, Executor executor) {
+        this.executor = executor;
+        int[] bounds = store.partition(partitions);
+        scanners = new Scanner[bounds.length - 1];
+        for (int i = 0; i < scanners.length; i++) {
+            scanners[i] = new Scanner(store, bounds[i], bounds[i + 1]);
+        }
+        for (Scanner scanner : scanners) {
+            submit(scanner);
+        }
+    }
+
+    @Override
+    public boolean next() {
+        while (chunk == null || chunkIndex >= chunk.size) {
+            chunk = takeChunk();
+            chunkIndex = 0;
+            if (chunk == null) {
+                return false;
+            }
+        }
+        subject = chunk.pairs[chunkIndex++];
+        object = chunk.pairs[chunkIndex++];
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // The tasks that are still running notice the flag after the current chunk
+        closed = true;
+        queue.clear();
+    }
+
+    private Chunk takeChunk() {
+        while (true) {
+            if (Thread.interrupted()) {
+                // The query was cancelled, stop the tasks and keep the interrupt for the caller
+                close();
+                Thread.currentThread().interrupt();
+                throw new PluginException("Interrupted while enumerating list values");
+            }
+            // Read the number of finished scanners before polling, so that a scanner can't finish (with its last
+            // chunk queued) between polling an empty queue and checking whether all scanners are done
+            boolean done = finishedScanners.get() == scanners.length;
+            Chunk next = queue.poll();
+            if (next != null) {
+                if (queuedChunks.decrementAndGet() <= MAX_QUEUED_CHUNKS / 2) {
+                    resumePaused();
+                }
+                return next;
+            }
+            if (failure != null) {
+                throw new PluginException("Failed to enumerate list values", failure);
+            }
+            if (done || closed) {
+                return null;
+            }
+            // Nothing is queued - scan a chunk ourselves instead of waiting for a free executor thread
+            next = scanIdle();
+            if (next != null) {
+                if (next.size > 0) {
+                    return next;
+                }
+                continue;
+            }
+            // All unfinished scanners are running on the executor
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private Chunk scanIdle() {
+        for (Scanner scanner : scanners) {
+            if (scanner.claim()) {
+                Chunk next = new Chunk();
+                try {
+                    scanner.fill(next);
+                } catch (RuntimeException | Error e) {
+                    scanner.finish();
+                    throw e;
+                }
+                scanner.release();
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private void resumePaused() {
+        for (Scanner scanner : scanners) {
+            if (scanner.isIdle() && scanner.scheduled.compareAndSet(false, true)) {
+                submit(scanner);
+            }
+        }
+    }
+
+    private void submit(Scanner scanner) {
+        scanner.scheduled.set(true);
+        try {
+            executor.execute(() -> run(scanner));
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down or saturated, the consumer will scan the partition itself
+            scanner.scheduled.set(false);
+        }
+    }
+
+    private void run(Scanner scanner) {
+        scanner.scheduled.set(false);
+        if (!scanner.claim()) {
+            // Finished or being scanned by the consumer
+            return;
+        }
+        try {
+            // Produce chunks until the queue is full, then pause instead of waiting for the consumer
+            while (!closed && queuedChunks.get() < MAX_QUEUED_CHUNKS) {
+                Chunk next = new Chunk();
+                boolean more = scanner.fill(next);
+                if (next.size > 0) {
+                    queuedChunks.incrementAndGet();
+                    queue.offer(next);
+                }
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+            scanner.finish();
+            return;
+        }
+        scanner.release();
+    }
+
+    /**
+     * Scans the segments of a single partition one chunk at a time. The scan can be continued by another thread after
+     * it is released, claiming and releasing a scanner makes its state visible to the next thread that claims it.
+     */
+    private class Scanner {
+        private static final int IDLE = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+
+        final AtomicInteger state = new AtomicInteger(IDLE);
+        // Set while a task for the scanner is waiting in the executor, so that it is not submitted twice
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final ListStore store;
+        private final int to;
+        private final ListSegment.ObjectCursor objects = new ListSegment.ObjectCursor();
+        private int segmentIndex;
+        private ListSegment segment;
+        private int subjectIndex;
+        private long subjectId;
+        private boolean exhausted;
+
+        Scanner(ListStore store, int from, int to) {
+            this.store = store;
+            this.to = to;
+            segmentIndex = from;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(IDLE, RUNNING);
+        }
+
+        boolean isIdle() {
+            return state.get() == IDLE;
+        }
+
+        void release() {
+            if (exhausted) {
+                finish();
+            } else {
+                state.set(IDLE);
+            }
+        }
+
+        void finish() {
+            state.set(FINISHED);
+            finishedScanners.incrementAndGet();
+        }
+
+        /**
+         * Fills a chunk with the next pairs of the partition.
+         *
+         * @param chunk the chunk to fill
+         * @return false if the partition is exhausted
+         */
+        boolean fill(Chunk chunk) {
+            while (chunk.size < chunk.pairs.length) {
+                if (!objects.hasNext()) {
+                    if (segment == null || subjectIndex >= segment.size()) {
+                        if (segmentIndex >= to || closed) {
+                            exhausted = true;
+                            return false;
+                        }
+                        segment = store.segmentAt(segmentIndex++);
+                        subjectIndex = 0;
+                        continue;
+                    }
+                    subjectId = segment.subjectAt(subjectIndex);
+                    segment.objectsAt(subjectIndex++, objects);
+                    continue;
+                }
+                chunk.pairs[chunk.size++] = subjectId;
+                chunk.pairs[chunk.size++] = objects.next();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A chunk of subject/object pairs stored interleaved.
+     */
+    private static class Chunk {
+        final long[] pairs = new long[CHUNK_SIZE * 2];
+        int size;
+    }
+}
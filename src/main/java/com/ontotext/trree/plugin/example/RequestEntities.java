@@ -0,0 +1,117 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.Entities;
+import com.ontotext.trree.sdk.RequestContext;
+import com.ontotext.trree.sdk.impl.RequestContextImpl;
+import org.eclipse.rdf4j.model.Value;
+
+import java.util.Arrays;
+
+/**
+ * Registers values produced by the plugins during a request in the entity pool with the REQUEST scope.
+ * <p>
+ * Every distinct value is put in the entity pool only once per request. The values already registered are kept in
+ * an open-addressing hash table with the IDs in a primitive array, so repeated values (e.g. the same literals
+ * produced for every row of an outer pattern) cost a hash lookup instead of a call to {@link Entities#put}.
+ * The table is cleared when it reaches {@value #MAX_SIZE} values, so it never holds more than that many values.
+ * <p>
+ * New values are registered one at a time as they are produced. {@link Entities} has no bulk put, so collecting
+ * values into batches would not save any calls and would only generate values ahead of the consumer.
+ * <p>
+ * Instances are not thread-safe, which is fine since a request is processed by a single thread.
+ */
+class RequestEntities {
+    private static final String ATTRIBUTE = "requestEntities";
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_SIZE = 4096;
+
+    private Value[] keys = new Value[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the instance for the current request, creating it if needed.
+     *
+     * @param requestContext the request context created by the plugin's preprocess() method, may be null
+     * @return the instance for the request, or a new instance if there is no request context
+     */
+    static RequestEntities forRequest(RequestContext requestContext) {
+        if (!(requestContext instanceof RequestContextImpl)) {
+            return new RequestEntities();
+        }
+        RequestContextImpl context = (RequestContextImpl) requestContext;
+        RequestEntities requestEntities = (RequestEntities) context.getAttribute(ATTRIBUTE);
+        if (requestEntities == null) {
+            requestEntities = new RequestEntities();
+            context.setAttribute(ATTRIBUTE, requestEntities);
+        }
+        return requestEntities;
+    }
+
+    /**
+     * Returns the ID of a value, registering it with the REQUEST scope if this is the first time it is seen.
+     *
+     * @param value    the value
+     * @param entities the entity pool
+     * @return the ID of the value
+     */
+    long put(Value value, Entities entities) {
+        if (size == MAX_SIZE) {
+            // Evict everything, the values that repeat will be registered again
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+        int slot = slot(value);
+        if (keys[slot] == null) {
+            long id = entities.put(value, Entities.Scope.REQUEST);
+            insert(slot, value, id);
+            return id;
+        }
+        return ids[slot];
+    }
+
+    private int slot(Value value) {
+        int mask = keys.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        while (keys[slot] != null && !keys[slot].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, Value value, long id) {
+        keys[slot] = value;
+        ids[slot] = id;
+        if (++size * 2 > keys.length) {
+            ensureCapacity(size);
+        }
+    }
+
+    private void ensureCapacity(int expectedSize) {
+        // Keep the load factor at or below 0.5
+        if (expectedSize * 2 <= keys.length) {
+            return;
+        }
+        int capacity = keys.length;
+        while (expectedSize * 2 > capacity) {
+            capacity *= 2;
+        }
+        Value[] oldKeys = keys;
+        long[] oldIds = ids;
+        keys = new Value[capacity];
+        ids = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        // Spread the bits of the hash code, the table uses the lowest bits
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,187 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.ClientErrorException;
+import com.ontotext.trree.sdk.Entities;
+import com.ontotext.trree.sdk.PluginConnection;
+import com.ontotext.trree.sdk.RequestContext;
+import com.ontotext.trree.sdk.StatementIterator;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.Duration;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.function.IntSupplier;
+
+/**
+ * Implements the http://example.com/timeRange functional pattern:
+ * <pre>
+ *     ?time <http://example.com/timeRange> (?start ?end ?step)
+ * </pre>
+ * <p>
+ * Where ?start and ?end are xsd:dateTime literals and ?step is an xsd:duration literal of at least one millisecond
+ * (e.g. "PT1H"). The pattern binds ?time to each date/time from ?start to ?end (inclusive) with the given step.
+ * <p>
+ * Explicit date/time values are used as they are. The IRI http://example.com/time can be used instead of ?start or
+ * ?end to mean the current time as seen by {@link ExamplePlugin}, i.e. shifted with its time offset, the same value
+ * that a "FROM &lt;http://example.com/time&gt;" query returns.
+ * <p>
+ * The values are generated lazily, one at a time, so arbitrarily long ranges can be joined against without
+ * materializing them.
+ */
+public class TimeRangeFunctionalPattern implements FunctionalPattern {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final DatatypeFactory DATATYPE_FACTORY;
+    // Stands for the current time of the Example plugin
+    private static final IRI TIME_IRI = VF.createIRI("http://example.com/time");
+
+    // Used by estimate() when some of the arguments are bound but not yet known
+    private static final double DEFAULT_ESTIMATE = 1000;
+
+    static {
+        try {
+            DATATYPE_FACTORY = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final IntSupplier timeOffsetHrs;
+
+    /**
+     * Creates a new time range functional pattern.
+     *
+     * @param timeOffsetHrs supplies the current time offset in hours that is applied to the current time
+     */
+    public TimeRangeFunctionalPattern(IntSupplier timeOffsetHrs) {
+        this.timeOffsetHrs = timeOffsetHrs;
+    }
+
+    @Override
+    public String getIRI() {
+        return "http://example.com/timeRange";
+    }
+
+    @Override
+    public int getMinArguments() {
+        return 3;
+    }
+
+    @Override
+    public int getMaxArguments() {
+        return 3;
+    }
+
+    @Override
+    public double estimate(long[] arguments, PluginConnection pluginConnection) {
+        for (long argument : arguments) {
+            if (argument == Entities.BOUND) {
+                // Bound but not yet known, we can't compute the actual range length
+                return DEFAULT_ESTIMATE;
+            }
+        }
+
+        Range range = new Range(arguments, pluginConnection.getEntities());
+        return Math.max(1, range.length());
+    }
+
+    @Override
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection) {
+        return evaluate(arguments, pluginConnection, null);
+    }
+
+    @Override
+    public StatementIterator evaluate(long[] arguments, PluginConnection pluginConnection,
+            RequestContext requestContext) {
+        Range range = new Range(arguments, pluginConnection.getEntities());
+        RequestEntities requestEntities = RequestEntities.forRequest(requestContext);
+
+        return new StatementIterator() {
+            final long startMillis = range.start.getTimeInMillis();
+            final Calendar current = (Calendar) range.start.clone();
+            long index;
+
+            @Override
+            public boolean next() {
+                // Compute each value as start + index * step, adding the step to the previous value would drift,
+                // e.g. P1M from January 31 would give the 28th for every month after February
+                current.setTimeInMillis(startMillis);
+                range.step.multiply(BigDecimal.valueOf(index)).addTo(current);
+                if (current.after(range.end)) {
+                    return false;
+                }
+                index++;
+                // Generate the next value only when it is requested. The literal is needed only for the current
+                // request, and the same range evaluated for every row of an outer pattern repeats the same values.
+                subject = requestEntities.put(VF.createLiteral(current.getTime()), pluginConnection.getEntities());
+                return true;
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        };
+    }
+
+    private Duration getDuration(Value value, Calendar start) {
+        try {
+            Duration duration = DATATYPE_FACTORY.newDuration(value.stringValue());
+            // Calendar has a millisecond precision, a shorter step would never move past the end of the range
+            if (duration.getTimeInMillis(start) > 0) {
+                return duration;
+            }
+        } catch (IllegalArgumentException e) {
+            // handled below
+        }
+        throw new ClientErrorException("Invalid duration, must be at least one millisecond: " + value.stringValue());
+    }
+
+    private Calendar getDateTime(Value value) {
+        if (TIME_IRI.equals(value)) {
+            // The current time adjusted with the offset, like in ExamplePlugin
+            Calendar calendar = Calendar.getInstance();
+            calendar.add(Calendar.HOUR, timeOffsetHrs.getAsInt());
+            return calendar;
+        }
+        if (value instanceof Literal) {
+            try {
+                return ((Literal) value).calendarValue().toGregorianCalendar();
+            } catch (IllegalArgumentException e) {
+                // handled below
+            }
+        }
+        throw new ClientErrorException("Invalid date/time value: " + value.stringValue());
+    }
+
+    /**
+     * The decoded arguments of a single call.
+     */
+    private class Range {
+        final Calendar start;
+        final Calendar end;
+        final Duration step;
+
+        Range(long[] arguments, Entities entities) {
+            start = getDateTime(entities.get(arguments[0]));
+            end = getDateTime(entities.get(arguments[1]));
+            step = getDuration(entities.get(arguments[2]), start);
+        }
+
+        long length() {
+            long startMillis = start.getTimeInMillis();
+            long endMillis = end.getTimeInMillis();
+            if (endMillis < startMillis) {
+                return 0;
+            }
+            // Exact for fixed-length steps, an approximation for steps with months or years
+            long stepMillis = step.getTimeInMillis(start);
+            return (endMillis - startMillis) / stepMillis + 1;
+        }
+    }
+}
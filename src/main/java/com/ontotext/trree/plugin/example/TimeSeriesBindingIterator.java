@@ -0,0 +1,65 @@
+package com.ontotext.trree.plugin.example;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link Iterator} that lazily produces one {@link BindingSet} per hour starting at a given time.
+ * <p>
+ * Rows are created only when requested by the consumer of {@link ExamplePlugin#flush}, so only a single row
+ * is held in memory at any time regardless of the number of hours requested. The consumer pulling rows
+ * naturally provides backpressure.
+ */
+class TimeSeriesBindingIterator implements Iterator<BindingSet> {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private final Collection<String> bindingNames;
+    private final long startMillis;
+    private final long count;
+    private final Calendar calendar = Calendar.getInstance();
+    private long index;
+
+    /**
+     * Creates a new iterator.
+     *
+     * @param bindingNames the names of the bindings that will be set to the date/time literal in each row
+     * @param start        the date/time of the first row
+     * @param count        the number of rows (hours) to produce
+     */
+    TimeSeriesBindingIterator(Collection<String> bindingNames, Calendar start, long count) {
+        this.bindingNames = bindingNames;
+        this.startMillis = start.getTimeInMillis();
+        this.count = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < count;
+    }
+
+    @Override
+    public BindingSet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // Compute each value from the start instead of adding an hour to the previous one, so nothing can drift
+        calendar.setTimeInMillis(startMillis);
+        calendar.add(Calendar.HOUR, (int) index++);
+        Literal literal = VF.createLiteral(calendar.getTime());
+
+        MapBindingSet result = new MapBindingSet();
+        for (String bindingName : bindingNames) {
+            result.addBinding(bindingName, literal);
+        }
+        return result;
+    }
+}
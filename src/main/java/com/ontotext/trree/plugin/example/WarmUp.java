@@ -0,0 +1,131 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.InitReason;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for the optional warm-up stage of the example plugins. The warm-up is enabled with the system property
+ * example.warmup=true and is configured with:
+ * <ul>
+ *     <li>example.warmup.labelPredicates - comma-separated IRIs of label predicates to pre-resolve
+ *     (default rdfs:label)</li>
+ *     <li>example.warmup.languages - comma-separated language tags to pre-resolve (default none)</li>
+ *     <li>example.warmup.maxKeys - maximum number of hot keys to record and pre-load (default 10000)</li>
+ *     <li>example.warmup.millis - duration of the background synthetic workload (default 2000)</li>
+ * </ul>
+ */
+class WarmUp {
+    static final boolean ENABLED = Boolean.getBoolean("example.warmup");
+    static final String LABEL_PREDICATES = System.getProperty("example.warmup.labelPredicates",
+            "http://www.w3.org/2000/01/rdf-schema#label");
+    static final String LANGUAGES = System.getProperty("example.warmup.languages", "");
+    static final int MAX_KEYS = Integer.getInteger("example.warmup.maxKeys", 10_000);
+    static final long MILLIS = Long.getLong("example.warmup.millis", 2000);
+
+    private WarmUp() {
+    }
+
+    /**
+     * Tells whether the warm-up should run for a given reason of initialization. The warm-up runs only when it is
+     * enabled and the plugin is initialized on a regular startup.
+     *
+     * @param reason the reason of initialization
+     * @return true if the warm-up should run
+     */
+    static boolean isEnabled(InitReason reason) {
+        return reason == InitReason.DEFAULT && ENABLED;
+    }
+
+    /**
+     * Splits a comma-separated configuration value.
+     *
+     * @param value the value
+     * @return the non-empty trimmed elements
+     */
+    static String[] split(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Runs a task in a background daemon thread.
+     *
+     * @param name the name of the thread
+     * @param task the task
+     */
+    static void runInBackground(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A lossy record of recently used entity IDs (e.g. resources looked up by a functional pattern), saved at
+     * shutdown and used to pre-load data on the next startup. Recording is lock-free and simply overwrites the oldest
+     * slot, concurrent writers may occasionally overwrite each other's keys.
+     */
+    static class HotKeys {
+        private final long[] keys;
+        private final AtomicInteger next = new AtomicInteger();
+
+        HotKeys(int capacity) {
+            keys = new long[Math.max(1, capacity)];
+        }
+
+        void record(long id) {
+            keys[(next.getAndIncrement() & Integer.MAX_VALUE) % keys.length] = id;
+        }
+
+        long[] snapshot() {
+            return Arrays.stream(keys.clone())
+                    .filter(id -> id != 0)
+                    .distinct()
+                    .toArray();
+        }
+
+        void save(File file) throws IOException {
+            long[] snapshot = snapshot();
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+                out.writeInt(snapshot.length);
+                for (long id : snapshot) {
+                    out.writeLong(id);
+                }
+            }
+        }
+
+        /**
+         * Loads the keys saved by {@link #save(File)}.
+         *
+         * @param file    the file
+         * @param maxKeys the maximum number of keys to load
+         * @return the keys, or an empty array if there is no file
+         * @throws IOException if the file can't be read or its size doesn't match the number of keys in it
+         */
+        static long[] load(File file, int maxKeys) throws IOException {
+            if (!file.isFile()) {
+                return new long[0];
+            }
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+                // Don't trust the count in a file that may be truncated or corrupted
+                int count = in.readInt();
+                if (count < 0 || file.length() != Integer.BYTES + (long) count * Long.BYTES) {
+                    throw new IOException("Corrupted hot keys file: " + file);
+                }
+                long[] ids = new long[Math.max(0, Math.min(count, maxKeys))];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.readLong();
+                }
+                return ids;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ontotext.trree.plugin.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link ExampleListIterator} reused across patterns, as it is within a request. Run it with the
+ * GC profiler to see the allocations per operation, which should be about 0 B/op in steady state:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.ontotext.trree.plugin.example.ExampleListIteratorBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExampleListIteratorBenchmark {
+    private static final int SUBJECTS = 10_000;
+    private static final int OBJECTS_PER_SUBJECT = 4;
+
+    private ExampleListIterator iterator;
+    private long[] subjects;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        long[][] entries = new long[SUBJECTS][];
+        subjects = new long[SUBJECTS];
+        for (int i = 0; i < SUBJECTS; i++) {
+            subjects[i] = 1000 + i * 7L;
+            entries[i] = new long[OBJECTS_PER_SUBJECT + 1];
+            entries[i][0] = subjects[i];
+            for (int j = 1; j <= OBJECTS_PER_SUBJECT; j++) {
+                entries[i][j] = j * 100L + i % 50;
+            }
+        }
+        iterator = new ExampleListIterator(ListStore.of(entries));
+    }
+
+    @Benchmark
+    public void scanAll(Blackhole blackhole) {
+        iterate(0, 0, blackhole);
+    }
+
+    @Benchmark
+    public void boundSubject(Blackhole blackhole) {
+        iterate(nextSubject(), 0, blackhole);
+    }
+
+    @Benchmark
+    public void boundSubjectAndObject(Blackhole blackhole) {
+        iterate(nextSubject(), 200, blackhole);
+    }
+
+    @Benchmark
+    public void boundObject(Blackhole blackhole) {
+        iterate(0, 300, blackhole);
+    }
+
+    private long nextSubject() {
+        next = (next + 1) % SUBJECTS;
+        return subjects[next];
+    }
+
+    private void iterate(long subject, long object, Blackhole blackhole) {
+        // The same iterator is reset for every pattern like in ExampleBasicPlugin
+        iterator.reset(subject, object);
+        while (iterator.next()) {
+            blackhole.consume(iterator.subject);
+            blackhole.consume(iterator.object);
+        }
+        iterator.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExampleListIteratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -4,8 +4,12 @@ import com.ontotext.graphdb.Config;
 import com.ontotext.test.TemporaryLocalFolder;
 import com.ontotext.test.functional.base.SingleRepositoryFunctionalTest;
 import com.ontotext.test.utils.StandardUtils;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
@@ -18,7 +22,10 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -127,6 +134,234 @@ public class TestExampleBasicPlugin extends SingleRepositoryFunctionalTest {
         }
     }
 
+    @Test
+    public void testExampleBasicListTwiceInQuery() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            // The inner pattern is interpreted once per row of the outer one, reusing the same iterator, while
+            // the outer iterator is still in use
+            TupleQuery query = connection.prepareTupleQuery("select ?s ?o1 ?o2 {\n"
+                    + "?s <http://example.com/list> ?o1 .\n"
+                    + "?s <http://example.com/list> ?o2\n"
+                    + "} order by ?s ?o1 ?o2");
+            try (TupleQueryResult result = query.evaluate()) {
+                assertEquals("Every pair of values of the same subject",
+                        Arrays.asList("[s=http://example.com/iri1;o1=\"a\";o2=\"a\"]",
+                                "[s=http://example.com/iri1;o1=\"a\";o2=\"b\"]",
+                                "[s=http://example.com/iri1;o1=\"b\";o2=\"a\"]",
+                                "[s=http://example.com/iri1;o1=\"b\";o2=\"b\"]",
+                                "[s=http://example.com/iri2;o1=\"a\";o2=\"a\"]",
+                                "[s=http://example.com/iri2;o1=\"a\";o2=\"c\"]",
+                                "[s=http://example.com/iri2;o1=\"c\";o2=\"a\"]",
+                                "[s=http://example.com/iri2;o1=\"c\";o2=\"c\"]"),
+                        extractBindingAsString(result));
+            }
+        }
+    }
+
+    @Test
+    public void testExampleBasicListUpdate() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            TupleQuery query = connection.prepareTupleQuery(
+                    "select ?o { <http://example.com/iri3> <http://example.com/list> ?o }");
+            try (TupleQueryResult result = query.evaluate()) {
+                assertFalse("No values before the update", result.hasNext());
+            }
+
+            // Statements with the list predicate update the list data
+            connection.prepareUpdate("insert data {\n"
+                    + "<http://example.com/iri3> <http://example.com/list> \"d\", \"e\" .\n"
+                    + "}").execute();
+            try (TupleQueryResult result = query.evaluate()) {
+                assertEquals("Values added by the update",
+                        Arrays.asList("[o=\"d\"]", "[o=\"e\"]"),
+                        extractBindingAsString(result));
+            }
+            // The statements are stored in the DB as well, so they are loaded again after a restart
+            ValueFactory vf = SimpleValueFactory.getInstance();
+            IRI iri3 = vf.createIRI("http://example.com/iri3");
+            IRI listPredicate = vf.createIRI("http://example.com/list");
+            assertTrue("Stored in the DB", connection.hasStatement(iri3, listPredicate, vf.createLiteral("d"), false));
+
+            connection.prepareUpdate("delete data {\n"
+                    + "<http://example.com/iri3> <http://example.com/list> \"d\", \"e\" .\n"
+                    + "}").execute();
+            try (TupleQueryResult result = query.evaluate()) {
+                assertFalse("No values after removing them", result.hasNext());
+            }
+            assertFalse("Removed from the DB", connection.hasStatement(iri3, listPredicate, null, false));
+        }
+    }
+
+    @Test
+    public void testExampleBasicListUpdateTransaction() {
+        try (RepositoryConnection writer = getRepository().getConnection();
+             RepositoryConnection reader = getRepository().getConnection()) {
+            TupleQuery query = reader.prepareTupleQuery(
+                    "select ?o { <http://example.com/iri4> <http://example.com/list> ?o }");
+
+            // The changes are not visible to other connections before the commit
+            writer.begin();
+            writer.prepareUpdate("insert data { <http://example.com/iri4> <http://example.com/list> \"f\" }")
+                    .execute();
+            writer.prepareUpdate("insert data { <http://example.com/iri4> <http://example.com/list> \"g\" }")
+                    .execute();
+            try (TupleQueryResult result = query.evaluate()) {
+                assertFalse("No values before the commit", result.hasNext());
+            }
+            writer.commit();
+            try (TupleQueryResult result = query.evaluate()) {
+                assertEquals("All values of the transaction after the commit",
+                        Arrays.asList("[o=\"f\"]", "[o=\"g\"]"),
+                        extractBindingAsString(result));
+            }
+
+            // The changes of an aborted transaction are discarded
+            writer.begin();
+            writer.prepareUpdate("delete data { <http://example.com/iri4> <http://example.com/list> \"f\", \"g\" }")
+                    .execute();
+            writer.rollback();
+            try (TupleQueryResult result = query.evaluate()) {
+                assertEquals("Values unchanged after the rollback",
+                        Arrays.asList("[o=\"f\"]", "[o=\"g\"]"),
+                        extractBindingAsString(result));
+            }
+
+            writer.prepareUpdate("delete data { <http://example.com/iri4> <http://example.com/list> \"f\", \"g\" }")
+                    .execute();
+        }
+    }
+
+    @Test
+    public void testExampleBasicListParallelScan() {
+        ValueFactory vf = SimpleValueFactory.getInstance();
+        IRI listPredicate = vf.createIRI("http://example.com/list");
+        List<Statement> statements = new ArrayList<>();
+        Set<String> expected = new HashSet<>(Arrays.asList(
+                "http://example.com/iri1 a", "http://example.com/iri1 b",
+                "http://example.com/iri2 a", "http://example.com/iri2 c"));
+        // Enough subjects to make a full enumeration parallel
+        for (int i = 0; i < 12_000; i++) {
+            IRI subject = vf.createIRI("http://example.com/parallel/" + i);
+            Literal object = vf.createLiteral("p" + i % 10);
+            statements.add(vf.createStatement(subject, listPredicate, object));
+            expected.add(subject + " " + object.getLabel());
+        }
+
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            connection.add(statements);
+            try {
+                TupleQuery query = connection.prepareTupleQuery("select ?s ?o { ?s <http://example.com/list> ?o }");
+                Set<String> actual = new HashSet<>();
+                try (TupleQueryResult result = query.evaluate()) {
+                    result.forEach(bindings -> assertTrue("No duplicates", actual.add(
+                            bindings.getValue("s").stringValue() + " " + bindings.getValue("o").stringValue())));
+                }
+                assertEquals("Same results as the serial scan", expected, actual);
+
+                TupleQuery explain = connection.prepareTupleQuery("select * "
+                        + "from <http://example.com/explain> { ?s <http://example.com/list> ?o }");
+                try (TupleQueryResult result = explain.evaluate()) {
+                    assertEquals(Collections.singletonList("parallel-scan"), result.stream()
+                            .filter(bindings -> "exampleBasic".equals(bindings.getValue("plugin").stringValue()))
+                            .map(bindings -> bindings.getValue("accessPath").stringValue())
+                            .collect(Collectors.toList()));
+                }
+            } finally {
+                connection.remove(statements);
+            }
+        }
+    }
+
+    @Test
+    public void testExampleBasicListMiss() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            // The subject is in the entity pool but has no list values
+            connection.prepareUpdate("insert data { <http://example.com/Nobody> a <http://example.com/Human> }")
+                    .execute();
+            try {
+                TupleQuery query = connection.prepareTupleQuery(
+                        "select ?o { <http://example.com/Nobody> <http://example.com/list> ?o }");
+                try (TupleQueryResult result = query.evaluate()) {
+                    assertFalse("No values for the subject", result.hasNext());
+                }
+
+                // The Bloom filter rejects the subject both when estimating and when interpreting the pattern
+                TupleQuery explain = connection.prepareTupleQuery("select * from <http://example.com/explain> {\n"
+                        + "<http://example.com/Nobody> <http://example.com/list> ?o\n"
+                        + "}");
+                try (TupleQueryResult result = explain.evaluate()) {
+                    List<BindingSet> rows = result.stream()
+                            .filter(bindings -> "exampleBasic".equals(bindings.getValue("plugin").stringValue()))
+                            .collect(Collectors.toList());
+                    assertEquals(1, rows.size());
+                    BindingSet row = rows.get(0);
+                    assertEquals("$s <http://example.com/list> ?o", row.getValue("pattern").stringValue());
+                    assertEquals("0.01", row.getValue("estimate").stringValue());
+                    assertEquals("bloom-filter-miss", row.getValue("accessPath").stringValue());
+                    assertEquals(0, ((Literal) row.getValue("rows")).longValue());
+                }
+            } finally {
+                connection.prepareUpdate("delete data { <http://example.com/Nobody> a <http://example.com/Human> }")
+                        .execute();
+            }
+        }
+    }
+
+    @Test
+    public void testExampleBasicListExplain() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            // The explain graph in the dataset returns what the plugins did instead of the query results
+            TupleQuery query = connection.prepareTupleQuery("select * from <http://example.com/explain> {\n"
+                    + "?s <http://example.com/list> ?o\n"
+                    + "}");
+            try (TupleQueryResult result = query.evaluate()) {
+                List<BindingSet> rows = result.stream()
+                        .filter(bindings -> "exampleBasic".equals(bindings.getValue("plugin").stringValue()))
+                        .collect(Collectors.toList());
+                assertEquals("A single pattern shape was evaluated", 1, rows.size());
+                BindingSet row = rows.get(0);
+                assertEquals("?s <http://example.com/list> ?o", row.getValue("pattern").stringValue());
+                assertEquals("scan", row.getValue("accessPath").stringValue());
+                assertEquals("1.0", row.getValue("estimate").stringValue());
+                assertNull("No bound but unknown positions", row.getValue("boundEstimate"));
+                assertEquals(1, ((Literal) row.getValue("calls")).longValue());
+                assertEquals(4, ((Literal) row.getValue("rows")).longValue());
+            }
+        }
+    }
+
+    @Test
+    public void testExampleBasicListExplainJoin() {
+        String data = "<http://example.com/Ann> <http://example.com/hasItem> <http://example.com/iri1>, "
+                + "<http://example.com/iri2> .";
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            connection.prepareUpdate("insert data { " + data + " }").execute();
+            try {
+                // The explicit graph keeps the regular data available next to the explain graph
+                TupleQuery query = connection.prepareTupleQuery("select *\n"
+                        + "from <http://example.com/explain>\n"
+                        + "from <http://www.ontotext.com/explicit> {\n"
+                        + "<http://example.com/Ann> <http://example.com/hasItem> ?item .\n"
+                        + "?item <http://example.com/list> ?o\n"
+                        + "}");
+                try (TupleQueryResult result = query.evaluate()) {
+                    List<BindingSet> rows = result.stream()
+                            .filter(bindings -> "$s <http://example.com/list> ?o".equals(
+                                    bindings.getValue("pattern").stringValue()))
+                            .collect(Collectors.toList());
+                    assertEquals(1, rows.size());
+                    BindingSet row = rows.get(0);
+                    // The subject is bound by the join but not yet known while planning
+                    assertEquals("1.0", row.getValue("boundEstimate").stringValue());
+                    assertEquals(2, ((Literal) row.getValue("calls")).longValue());
+                    assertEquals(4, ((Literal) row.getValue("rows")).longValue());
+                }
+            } finally {
+                connection.prepareUpdate("delete data { " + data + " }").execute();
+            }
+        }
+    }
+
     private List<String> extractBindingAsString(TupleQueryResult result) {
         return result.stream()
                 .map(Object::toString)
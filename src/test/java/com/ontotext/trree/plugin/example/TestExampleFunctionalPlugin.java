@@ -4,6 +4,7 @@ import com.ontotext.graphdb.Config;
 import com.ontotext.test.TemporaryLocalFolder;
 import com.ontotext.test.functional.base.SingleRepositoryFunctionalTest;
 import com.ontotext.test.utils.StandardUtils;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.config.RepositoryConfig;
@@ -131,6 +132,167 @@ public class TestExampleFunctionalPlugin extends SingleRepositoryFunctionalTest
         }
     }
 
+    @Test
+    public void testLabelWithFallbackAngolanPortugueseToAnyPortuguese() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix model: <http://example.com/model/>\n"
+                    + "select ?movie ?label {\n"
+                    + "  ?movie a model:Movie .\n"
+                    + "  model:Setting1 model:labelPredicate ?labelPred .\n"
+                    + "  ?label <http://example.com/getLabelWithFallback> (?movie ?labelPred \"pt-AO\")\n"
+                    + "}").evaluate()) {
+                assertEquals("Angolan Portuguese, otherwise any country Portuguese or xsd:string",
+                        Arrays.asList(
+                                "[movie=http://example.com/data/StarTrekTNG;label=\"Star Trek: A Geração Seguinte\"@pt-PT]",
+                                "[movie=http://example.com/data/StarTrekTNG;label=\"Jornada nas Estrelas: A Nova Geração\"@pt-BR]",
+                                "[movie=http://example.com/data/StarTrekSNW;label=\"Star Trek: Strange New Worlds\"^^<http://www.w3.org/2001/XMLSchema#string>]"),
+                        extractBindingAsString(result));
+            }
+        }
+    }
+
+    @Test
+    public void testLabelWithFallbackTruncatedAfterAllTags() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix data: <http://example.com/data/>\n"
+                    + "select ?label {\n"
+                    + "  ?label <http://example.com/getLabelWithFallback> (data:StarTrekTNG rdfs:label \"pt-AO\" \"pt-PT\")\n"
+                    + "}").evaluate()) {
+                assertEquals("European Portuguese is preferred over any Portuguese",
+                        Arrays.asList("[label=\"Star Trek: A Geração Seguinte\"@pt-PT]"),
+                        extractBindingAsString(result));
+            }
+        }
+    }
+
+    @Test
+    public void testLanguageTruncationChain() {
+        assertEquals(Arrays.asList("zh-Hant-CN-x-private", "zh-Hant-CN", "zh-Hant", "zh"),
+                GetLabelFunctionalPattern.truncationChain("zh-Hant-CN-x-private"));
+        assertEquals(Arrays.asList("pt-BR", "pt"), GetLabelFunctionalPattern.truncationChain("pt-BR"));
+        assertEquals(Arrays.asList("de"), GetLabelFunctionalPattern.truncationChain("de"));
+    }
+
+    @Test
+    public void testLabelAggregates() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix data: <http://example.com/data/>\n"
+                    + "select ?labels ?languages ?coverage {\n"
+                    + "  ?labels <http://example.com/labelCount> (data:StarTrekTNG rdfs:label) .\n"
+                    + "  ?languages <http://example.com/languageCount> (data:StarTrekTNG rdfs:label) .\n"
+                    + "  ?coverage <http://example.com/languageCoverage> (data:StarTrekTNG rdfs:label \"pt\" \"de\" \"en\")\n"
+                    + "}").evaluate()) {
+                assertEquals("Four labels in three languages, Portuguese and English but no German",
+                        Arrays.asList("[labels=\"4\"^^<http://www.w3.org/2001/XMLSchema#long>;"
+                                + "languages=\"3\"^^<http://www.w3.org/2001/XMLSchema#long>;"
+                                + "coverage=\"5\"^^<http://www.w3.org/2001/XMLSchema#long>]"),
+                        extractBindingAsString(result));
+            }
+        }
+    }
+
+    @Test
+    public void testTimeRange() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                    + "select ?time {\n"
+                    + "  ?time <http://example.com/timeRange> (\"2023-01-01T00:00:00Z\"^^xsd:dateTime\n"
+                    + "      \"2023-01-01T03:00:00Z\"^^xsd:dateTime \"PT1H\"^^xsd:dayTimeDuration)\n"
+                    + "}").evaluate()) {
+                List<Long> times = result.stream()
+                        .map(bindings -> ((Literal) bindings.getValue("time")).calendarValue()
+                                .toGregorianCalendar().getTimeInMillis())
+                        .collect(Collectors.toList());
+                long start = 1672531200000L; // 2023-01-01T00:00:00Z
+                assertEquals("One value per hour, inclusive of the end",
+                        Arrays.asList(start, start + 3_600_000L, start + 7_200_000L, start + 10_800_000L),
+                        times);
+            }
+        }
+    }
+
+    @Test
+    public void testTimeRangeOffset() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            connection.prepareUpdate("insert data { <http://example.com/time> <http://example.com/goInFuture> 5 }")
+                    .execute();
+            try {
+                // Explicit values are not shifted with the offset
+                try (TupleQueryResult result = connection.prepareTupleQuery(""
+                        + "prefix xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                        + "select ?time {\n"
+                        + "  ?time <http://example.com/timeRange> (\"2023-01-01T00:00:00Z\"^^xsd:dateTime\n"
+                        + "      \"2023-01-01T00:00:00Z\"^^xsd:dateTime \"PT1H\"^^xsd:dayTimeDuration)\n"
+                        + "}").evaluate()) {
+                    assertEquals(Arrays.asList(1672531200000L), getTimes(result));
+                }
+
+                // The current time of the Example plugin is shifted
+                try (TupleQueryResult result = connection.prepareTupleQuery(""
+                        + "prefix xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                        + "select ?time {\n"
+                        + "  ?time <http://example.com/timeRange> (<http://example.com/time>\n"
+                        + "      <http://example.com/time> \"PT1H\"^^xsd:dayTimeDuration)\n"
+                        + "}").evaluate()) {
+                    List<Long> times = getTimes(result);
+                    assertEquals(1, times.size());
+                    assertEquals("The current time shifted with the offset",
+                            System.currentTimeMillis() + 5 * 3_600_000L, times.get(0), 60_000);
+                }
+            } finally {
+                connection.prepareUpdate("insert data { <http://example.com/time> <http://example.com/goInPast> 5 }")
+                        .execute();
+            }
+        }
+    }
+
+    @Test
+    public void testTimeRangeMonthlyStep() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                    + "select ?time {\n"
+                    + "  ?time <http://example.com/timeRange> (\"2023-01-31T00:00:00Z\"^^xsd:dateTime\n"
+                    + "      \"2023-04-30T00:00:00Z\"^^xsd:dateTime \"P1M\"^^xsd:yearMonthDuration)\n"
+                    + "}").evaluate()) {
+                assertEquals("Every value is computed from the start, the end of February doesn't carry over",
+                        Arrays.asList(1675123200000L, 1677542400000L, 1680220800000L, 1682812800000L),
+                        getTimes(result));
+            }
+        }
+    }
+
+    @Test
+    public void testTimeRangeStepBelowMillisecond() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            try (TupleQueryResult result = connection.prepareTupleQuery(""
+                    + "prefix xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                    + "select ?time {\n"
+                    + "  ?time <http://example.com/timeRange> (\"2023-01-01T00:00:00Z\"^^xsd:dateTime\n"
+                    + "      \"2023-01-01T00:00:01Z\"^^xsd:dateTime \"PT0.0001S\"^^xsd:dayTimeDuration)\n"
+                    + "}").evaluate()) {
+                while (result.hasNext()) {
+                    result.next();
+                }
+                fail("Must fail with exception");
+            } catch (RuntimeException e) {
+                MatcherAssert.assertThat(e.getMessage(),
+                        CoreMatchers.containsString("must be at least one millisecond"));
+            }
+        }
+    }
+
+    private List<Long> getTimes(TupleQueryResult result) {
+        return result.stream()
+                .map(bindings -> ((Literal) bindings.getValue("time")).calendarValue()
+                        .toGregorianCalendar().getTimeInMillis())
+                .collect(Collectors.toList());
+    }
+
     private List<String> extractBindingAsString(TupleQueryResult result) {
         return result.stream()
                 .map(Object::toString)
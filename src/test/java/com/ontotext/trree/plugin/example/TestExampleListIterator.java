@@ -0,0 +1,100 @@
+package com.ontotext.trree.plugin.example;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests resetting and reusing {@link ExampleListIterator}.
+ */
+public class TestExampleListIterator {
+    private static final ListStore STORE = ListStore.of(new long[][] {
+            {10, 1, 2},
+            {20, 1, 3},
+            {30, 4}
+    });
+    // Subject/object filters for all kinds of patterns
+    private static final long[][] FILTERS = {{0, 0}, {5000, 0}, {0, 3}, {7, 2}};
+
+    @Test
+    public void testReset() {
+        ExampleListIterator iterator = new ExampleListIterator(STORE);
+        assertFalse(iterator.isInUse());
+
+        assertEquals(Arrays.asList("10 1", "10 2", "20 1", "20 3", "30 4"), collect(iterator.reset(0, 0)));
+        // The same instance can be used for any pattern after it is closed
+        assertEquals(Arrays.asList("20 1", "20 3"), collect(iterator.reset(20, 0)));
+        assertEquals(Arrays.asList("10 1", "20 1"), collect(iterator.reset(0, 1)));
+        assertEquals(Arrays.asList("20 3"), collect(iterator.reset(20, 3)));
+        assertEquals(Arrays.asList(), collect(iterator.reset(20, 4)));
+        assertEquals(Arrays.asList(), collect(iterator.reset(25, 0)));
+        assertEquals(Arrays.asList("30 4"), collect(iterator.reset(30, 0)));
+    }
+
+    @Test
+    public void testResetBeforeExhausted() {
+        ExampleListIterator iterator = new ExampleListIterator(STORE).reset(0, 0);
+        assertTrue(iterator.next());
+        assertTrue("In use until closed", iterator.isInUse());
+        iterator.close();
+        assertFalse(iterator.isInUse());
+
+        // Nothing is left over from the previous pattern
+        assertEquals(Arrays.asList("10 1", "10 2"), collect(iterator.reset(10, 0)));
+    }
+
+    @Test
+    public void testNoAllocationsWhenReused() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Allocation counters not supported",
+                threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue("Allocation counters not enabled", allocations.isThreadAllocatedMemoryEnabled());
+
+        long[][] entries = new long[10_000][];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new long[] {i + 1, 1, 2, 3, 4};
+        }
+        ExampleListIterator iterator = new ExampleListIterator(ListStore.of(entries));
+
+        // Warm up so that the measured part doesn't include class loading and compilation
+        long expectedRows = iterate(iterator, 20);
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        long rows = iterate(iterator, 20);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(expectedRows, rows);
+        // Practically nothing compared to an object per row
+        assertTrue("Allocated " + allocated + " bytes for " + rows + " rows", allocated < rows / 100);
+    }
+
+    private static long iterate(ExampleListIterator iterator, int times) {
+        long rows = 0;
+        for (int i = 0; i < times; i++) {
+            for (long[] filter : FILTERS) {
+                iterator.reset(filter[0], filter[1]);
+                while (iterator.next()) {
+                    rows++;
+                }
+                iterator.close();
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> collect(ExampleListIterator iterator) {
+        List<String> rows = new ArrayList<>();
+        while (iterator.next()) {
+            rows.add(iterator.subject + " " + iterator.object);
+        }
+        iterator.close();
+        return rows;
+    }
+}
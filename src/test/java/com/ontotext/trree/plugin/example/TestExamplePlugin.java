@@ -56,6 +56,27 @@ public class TestExamplePlugin extends SingleRepositoryFunctionalTest {
         }
     }
 
+    @Test
+    public void testExampleTimeSeries() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            // The 'from <http://example.com/timeSeries/5>' requests five rows, one per hour
+            TupleQuery query = connection.prepareTupleQuery(
+                    "select ?t from <http://example.com/timeSeries/5> { ?s ?p ?o }");
+            long timeInMillisFromSystem = System.currentTimeMillis();
+            try (TupleQueryResult result = query.evaluate()) {
+                for (int i = 0; i < 5; i++) {
+                    assertTrue("Must have a row for hour " + i, result.hasNext());
+                    Value time = result.next().getValue("t");
+                    assertTrue("Returned value must be a literal", time instanceof Literal);
+                    long timeInMillisFromQuery = ((Literal) time).calendarValue().toGregorianCalendar().getTimeInMillis();
+                    assertEquals("Time must be a close match", timeInMillisFromSystem + i * 3_600_000L,
+                            timeInMillisFromQuery, 100);
+                }
+                assertFalse("There must be exactly five rows in the result", result.hasNext());
+            }
+        }
+    }
+
     private void assertQueryWithTimeOffset(TupleQuery query, int numHours) {
         // Expected time adjusted for offset (hours converted to milliseconds)
         long timeInMillisFromSystem = System.currentTimeMillis() + numHours * 3_600_000;
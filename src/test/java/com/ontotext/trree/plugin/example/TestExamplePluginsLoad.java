@@ -0,0 +1,347 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.graphdb.Config;
+import com.ontotext.test.TemporaryLocalFolder;
+import com.ontotext.test.functional.base.SingleRepositoryFunctionalTest;
+import com.ontotext.test.utils.StandardUtils;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.config.RepositoryConfig;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load test for all example plugins. Generates a synthetic multilingual dataset with list values for every resource
+ * and replays a mixed query/update workload from several concurrent connections, then reports the throughput and
+ * latency percentiles per operation. With the default number of resources full enumerations of the list data take
+ * the parallel path.
+ * <p>
+ * The test is skipped unless enabled with -Dexample.loadtest=true. It can be configured with these system properties:
+ * <ul>
+ *     <li>example.loadtest.resources - number of generated resources (default 10000)</li>
+ *     <li>example.loadtest.threads - number of concurrent connections (default 8)</li>
+ *     <li>example.loadtest.warmup - warm-up time in seconds, not measured (default 5)</li>
+ *     <li>example.loadtest.duration - measured time in seconds (default 30)</li>
+ *     <li>example.loadtest.output - report file, JSON unless the name ends with .csv
+ *     (default target/example-loadtest.json)</li>
+ * </ul>
+ */
+public class TestExamplePluginsLoad extends SingleRepositoryFunctionalTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final String LOAD_NS = "http://example.com/load/";
+    private static final IRI LIST = VF.createIRI("http://example.com/list");
+    private static final String[] LANGUAGES = {"en", "de", "fr", "es-ES", "es-LA", "pt-PT", "pt-BR", "bg"};
+
+    private static final int RESOURCES = Integer.getInteger("example.loadtest.resources", 10_000);
+    private static final int THREADS = Integer.getInteger("example.loadtest.threads", 8);
+    private static final int WARMUP_SECONDS = Integer.getInteger("example.loadtest.warmup", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("example.loadtest.duration", 30);
+    private static final String OUTPUT = System.getProperty("example.loadtest.output", "target/example-loadtest.json");
+
+    /**
+     * The operations in the workload with their relative weights.
+     */
+    private enum Operation {
+        GET_LABEL(40),
+        LIST_BOUND(20),
+        LIST_ALL(5),
+        NOW(10),
+        TIME_PREPROCESSOR(10),
+        LIST_UPDATE(10),
+        LABEL_UPDATE(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @ClassRule
+    public static TemporaryLocalFolder tmpFolder = new TemporaryLocalFolder();
+
+    @Override
+    protected RepositoryConfig createRepositoryConfiguration() {
+        // Creates a repository configuration with the rdfsplus-optimized ruleset
+        return StandardUtils.createOwlimSe("rdfsplus-optimized");
+    }
+
+    @BeforeClass
+    public static void setWorkDir() {
+        System.setProperty("graphdb.home.work", String.valueOf(tmpFolder.getRoot()));
+        Config.reset();
+    }
+
+    @AfterClass
+    public static void resetWorkDir() {
+        System.clearProperty("graphdb.home.work");
+        Config.reset();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        Assume.assumeTrue("Load test not enabled", Boolean.getBoolean("example.loadtest"));
+
+        loadDataset();
+
+        // Warm up without recording, then measure
+        runWorkload(WARMUP_SECONDS);
+        Recorder[] recorders = runWorkload(DURATION_SECONDS);
+
+        Recorder total = new Recorder();
+        for (Recorder recorder : recorders) {
+            total.addAll(recorder);
+        }
+        // Write the report first, it includes the number of failed operations
+        writeReport(total);
+        if (total.firstFailure != null) {
+            throw new AssertionError(total.failureCount() + " operations failed, the cause is the first failure",
+                    total.firstFailure);
+        }
+    }
+
+    private void loadDataset() {
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            connection.begin();
+            List<Statement> batch = new ArrayList<>();
+            IRI movie = VF.createIRI("http://example.com/model/Movie");
+            for (int i = 0; i < RESOURCES; i++) {
+                IRI resource = resource(i);
+                batch.add(VF.createStatement(resource, RDF.TYPE, movie));
+                // Every resource gets a plain label and labels in a random subset of the languages
+                batch.add(VF.createStatement(resource, RDFS.LABEL, VF.createLiteral("Resource " + i)));
+                for (String language : LANGUAGES) {
+                    if (ThreadLocalRandom.current().nextBoolean()) {
+                        batch.add(VF.createStatement(resource, RDFS.LABEL,
+                                VF.createLiteral("Resource " + i + " " + language, language)));
+                    }
+                }
+                // And one to four list values, handled by the ExampleBasic plugin
+                int listValues = 1 + ThreadLocalRandom.current().nextInt(4);
+                for (int j = 0; j < listValues; j++) {
+                    batch.add(VF.createStatement(resource, LIST, VF.createLiteral("v" + (i + j) % 100)));
+                }
+                if (batch.size() >= 10_000) {
+                    connection.add(batch);
+                    batch.clear();
+                }
+            }
+            connection.add(batch);
+            connection.commit();
+        }
+    }
+
+    private Recorder[] runWorkload(int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Recorder>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> runClient(deadline)));
+            }
+            Recorder[] recorders = new Recorder[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                recorders[i] = futures.get(i).get();
+            }
+            return recorders;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Recorder runClient(long deadline) {
+        Recorder recorder = new Recorder();
+        int totalWeight = Arrays.stream(Operation.values()).mapToInt(o -> o.weight).sum();
+        try (RepositoryConnection connection = getRepository().getConnection()) {
+            while (System.nanoTime() < deadline) {
+                int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+                Operation operation = null;
+                for (Operation candidate : Operation.values()) {
+                    pick -= candidate.weight;
+                    if (pick < 0) {
+                        operation = candidate;
+                        break;
+                    }
+                }
+
+                long start = System.nanoTime();
+                try {
+                    execute(connection, operation);
+                    recorder.record(operation, System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    recorder.recordFailure(operation, e);
+                }
+            }
+        }
+        return recorder;
+    }
+
+    private void execute(RepositoryConnection connection, Operation operation) {
+        int i = ThreadLocalRandom.current().nextInt(RESOURCES);
+        switch (operation) {
+            case GET_LABEL:
+                String language = LANGUAGES[ThreadLocalRandom.current().nextInt(LANGUAGES.length)];
+                query(connection, "select ?label { ?label <http://example.com/getLabel> (<" + resource(i)
+                        + "> <" + RDFS.LABEL + "> \"" + language + "\" \"en\") }");
+                break;
+            case LIST_BOUND:
+                query(connection, "select ?o { <" + resource(i) + "> <http://example.com/list> ?o }");
+                break;
+            case LIST_ALL:
+                query(connection, "select ?s ?o { ?s <http://example.com/list> ?o }");
+                break;
+            case NOW:
+                query(connection, "select ?time { [] <http://example.com/now> ?time }");
+                break;
+            case TIME_PREPROCESSOR:
+                query(connection, "select * from <http://example.com/time> { ?s ?p ?o }");
+                break;
+            case LIST_UPDATE:
+                // Adds and removes a value so that the list data doesn't grow
+                String listStatement = "<" + resource(i) + "> <http://example.com/list> \"u" + i + "\"";
+                connection.prepareUpdate("insert data { " + listStatement + " }").execute();
+                connection.prepareUpdate("delete data { " + listStatement + " }").execute();
+                break;
+            case LABEL_UPDATE:
+                connection.prepareUpdate("insert data { <" + resource(i) + "> <" + RDFS.LABEL
+                        + "> \"Resource " + i + "\"@en }").execute();
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private void query(RepositoryConnection connection, String query) {
+        try (TupleQueryResult result = connection.prepareTupleQuery(query).evaluate()) {
+            // Consume the entire result
+            while (result.hasNext()) {
+                result.next();
+            }
+        }
+    }
+
+    private void writeReport(Recorder total) throws IOException {
+        File output = new File(OUTPUT);
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        boolean csv = OUTPUT.endsWith(".csv");
+        try (PrintWriter writer = new PrintWriter(output, StandardCharsets.UTF_8.name())) {
+            if (csv) {
+                writer.println("operation,count,failures,throughput_ops,p50_ms,p99_ms,p999_ms");
+            } else {
+                writer.println("{");
+                writer.printf(Locale.ROOT, "  \"resources\": %d,%n  \"threads\": %d,%n  \"durationSeconds\": %d,%n",
+                        RESOURCES, THREADS, DURATION_SECONDS);
+                writer.printf(Locale.ROOT, "  \"failures\": %d,%n", total.failureCount());
+                writer.println("  \"operations\": {");
+            }
+            Operation[] operations = Operation.values();
+            for (int i = 0; i < operations.length; i++) {
+                long[] latencies = total.sortedLatencies(operations[i]);
+                int failures = total.failures[operations[i].ordinal()];
+                double throughput = (double) latencies.length / DURATION_SECONDS;
+                double p50 = percentile(latencies, 0.5);
+                double p99 = percentile(latencies, 0.99);
+                double p999 = percentile(latencies, 0.999);
+                if (csv) {
+                    writer.printf(Locale.ROOT, "%s,%d,%d,%.2f,%.3f,%.3f,%.3f%n", operations[i], latencies.length,
+                            failures, throughput, p50, p99, p999);
+                } else {
+                    writer.printf(Locale.ROOT, "    \"%s\": {\"count\": %d, \"failures\": %d, \"throughput\": %.2f, "
+                                    + "\"p50\": %.3f, \"p99\": %.3f, \"p999\": %.3f}%s%n", operations[i],
+                            latencies.length, failures, throughput, p50, p99, p999,
+                            i < operations.length - 1 ? "," : "");
+                }
+            }
+            if (!csv) {
+                writer.println("  }");
+                writer.println("}");
+            }
+        }
+        System.out.println("Load test report written to " + output.getAbsolutePath());
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        // Nanoseconds to milliseconds
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static IRI resource(int i) {
+        return VF.createIRI(LOAD_NS + "r" + i);
+    }
+
+    /**
+     * Records latencies per operation, used by a single thread.
+     */
+    private static class Recorder {
+        final long[][] latencies = new long[Operation.values().length][1024];
+        final int[] counts = new int[Operation.values().length];
+        final int[] failures = new int[Operation.values().length];
+        RuntimeException firstFailure;
+
+        void record(Operation operation, long nanos) {
+            int o = operation.ordinal();
+            if (counts[o] == latencies[o].length) {
+                latencies[o] = Arrays.copyOf(latencies[o], counts[o] * 2);
+            }
+            latencies[o][counts[o]++] = nanos;
+        }
+
+        void recordFailure(Operation operation, RuntimeException e) {
+            if (firstFailure == null) {
+                firstFailure = new IllegalStateException("Operation " + operation + " failed", e);
+            }
+            failures[operation.ordinal()]++;
+        }
+
+        void addAll(Recorder other) {
+            for (Operation operation : Operation.values()) {
+                int o = operation.ordinal();
+                for (int i = 0; i < other.counts[o]; i++) {
+                    record(operation, other.latencies[o][i]);
+                }
+                failures[o] += other.failures[o];
+            }
+            if (firstFailure == null) {
+                firstFailure = other.firstFailure;
+            }
+        }
+
+        int failureCount() {
+            return Arrays.stream(failures).sum();
+        }
+
+        long[] sortedLatencies(Operation operation) {
+            long[] sorted = Arrays.copyOf(latencies[operation.ordinal()], counts[operation.ordinal()]);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ontotext.trree.plugin.example;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the encoding of the list data in {@link ListSegment} and applying changes to a {@link ListStore}.
+ */
+public class TestListSegment {
+
+    // Deltas that need 1, 2, 3 and 10 bytes, negative IDs and the extremes of the long range
+    private static final long[][] ENTRIES = {
+            {Long.MIN_VALUE, Long.MIN_VALUE, -1, 0, Long.MAX_VALUE},
+            {-5, -300, -2, 127, 128, 16_383, 16_384, 16_512},
+            {0, 0},
+            {1, 1L << 40, (1L << 40) + 1, (1L << 62) + 12_345},
+            {Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1}
+    };
+
+    @Test
+    public void testRoundTrip() {
+        ListSegment segment = ListSegment.of(ENTRIES);
+
+        assertEquals(ENTRIES.length, segment.size());
+        assertArrayEquals("All entries decoded as they were encoded", ENTRIES, decode(segment));
+    }
+
+    @Test
+    public void testIndexOf() {
+        ListSegment segment = ListSegment.of(ENTRIES);
+
+        for (int i = 0; i < ENTRIES.length; i++) {
+            assertEquals(i, segment.indexOf(ENTRIES[i][0]));
+            assertEquals(ENTRIES[i][0], segment.subjectAt(i));
+        }
+        assertTrue("Missing subject", segment.indexOf(2) < 0);
+    }
+
+    @Test
+    public void testContains() {
+        ListSegment segment = ListSegment.of(ENTRIES);
+        ListSegment.ObjectCursor cursor = new ListSegment.ObjectCursor();
+
+        for (int i = 0; i < ENTRIES.length; i++) {
+            for (int j = 1; j < ENTRIES[i].length; j++) {
+                assertTrue("Present object", segment.objectsAt(i, cursor).contains(ENTRIES[i][j]));
+                assertFalse("Cursor exhausted after the membership test", cursor.hasNext());
+            }
+        }
+        assertFalse("Missing object between two present ones", segment.objectsAt(1, cursor).contains(129));
+        assertFalse("Missing object after the last one", segment.objectsAt(3, cursor).contains(Long.MAX_VALUE));
+        assertFalse("Missing object right after the first one",
+                segment.objectsAt(0, cursor).contains(Long.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void testEntriesWith() {
+        ListSegment segment = ListSegment.of(ENTRIES);
+
+        // Changes sorted by subject and object: add a new subject, add and remove objects of existing subjects,
+        // remove an object that is not there and the only object of a subject
+        long[] subjects = {-5, -5, -5, -4, 0, 1};
+        long[] objects = {-300, 129, 16_384, 7, 0, Long.MIN_VALUE};
+        boolean[] additions = {false, true, false, true, false, false};
+        long[][] entries = segment.entriesWith(subjects, objects, additions, 0, subjects.length);
+
+        assertArrayEquals(new long[][] {
+                {Long.MIN_VALUE, Long.MIN_VALUE, -1, 0, Long.MAX_VALUE},
+                {-5, -2, 127, 128, 129, 16_383, 16_512},
+                {-4, 7},
+                {1, 1L << 40, (1L << 40) + 1, (1L << 62) + 12_345},
+                {Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1}
+        }, entries);
+        assertArrayEquals("The segment itself is not changed", ENTRIES, decode(segment));
+    }
+
+    @Test
+    public void testStoreChanges() {
+        // Enough sparse subjects for several segments
+        List<long[]> entries = new ArrayList<>();
+        for (long subject = 0; subject < ListStore.SEGMENT_SUBJECTS * 3; subject++) {
+            entries.add(new long[] {subject * 1_000_003, subject, subject + 1});
+        }
+        ListStore store = ListStore.of(entries.toArray(new long[0][]));
+        assertEquals(3, store.segmentCount());
+
+        ListStore.Changes changes = new ListStore.Changes();
+        // The last change to a pair wins
+        changes.add(1_000_003, 1, false);
+        changes.add(1_000_003, 1, true);
+        changes.add(1_000_003, 2, false);
+        // A subject before the first one and a subject after the last one
+        changes.add(-1, 5, true);
+        changes.add(Long.MAX_VALUE, 5, true);
+        // Grow the last segment past its limit
+        for (long subject = 0; subject < ListStore.SEGMENT_SUBJECTS * 2; subject++) {
+            changes.add(Long.MAX_VALUE / 2 + subject, 3, true);
+        }
+        ListStore changed = store.with(changes);
+
+        assertEquals(ListStore.SEGMENT_SUBJECTS * 5 + 2, changed.size());
+        assertTrue("The grown segment is split", changed.segmentCount() > 4);
+        assertSame("The unchanged segment is shared", store.segmentAt(1), changed.segmentAt(1));
+        assertEquals(ListStore.SEGMENT_SUBJECTS * 3, store.size());
+
+        assertArrayEquals(new long[] {-1, 5}, objectsOf(changed, -1));
+        assertArrayEquals(new long[] {1_000_003, 1}, objectsOf(changed, 1_000_003));
+        assertArrayEquals(new long[] {Long.MAX_VALUE, 5}, objectsOf(changed, Long.MAX_VALUE));
+        assertArrayEquals(new long[] {2_000_006, 2, 3}, objectsOf(changed, 2_000_006));
+
+        // Removing all objects removes the subjects and the segments that become empty
+        ListStore.Changes removals = new ListStore.Changes();
+        for (int i = 0; i < changed.segmentCount(); i++) {
+            ListSegment segment = changed.segmentAt(i);
+            ListSegment.ObjectCursor cursor = new ListSegment.ObjectCursor();
+            for (int j = 0; j < segment.size(); j++) {
+                segment.objectsAt(j, cursor);
+                while (cursor.hasNext()) {
+                    removals.add(segment.subjectAt(j), cursor.next(), false);
+                }
+            }
+        }
+        ListStore empty = changed.with(removals);
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.segmentCount());
+        assertFalse(empty.mightContain(-1));
+    }
+
+    private static long[][] decode(ListSegment segment) {
+        long[][] entries = new long[segment.size()][];
+        ListSegment.ObjectCursor cursor = new ListSegment.ObjectCursor();
+        for (int i = 0; i < segment.size(); i++) {
+            List<Long> entry = new ArrayList<>();
+            entry.add(segment.subjectAt(i));
+            segment.objectsAt(i, cursor);
+            while (cursor.hasNext()) {
+                entry.add(cursor.next());
+            }
+            entries[i] = entry.stream().mapToLong(Long::longValue).toArray();
+        }
+        return entries;
+    }
+
+    private static long[] objectsOf(ListStore store, long subject) {
+        ExampleListIterator iterator = new ExampleListIterator(store).reset(subject, 0);
+        List<Long> result = new ArrayList<>(Arrays.asList(subject));
+        while (iterator.next()) {
+            assertEquals(subject, iterator.subject);
+            result.add(iterator.object);
+        }
+        iterator.close();
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+}
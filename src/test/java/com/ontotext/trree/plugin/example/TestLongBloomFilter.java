@@ -0,0 +1,62 @@
+package com.ontotext.trree.plugin.example;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LongBloomFilter}.
+ */
+public class TestLongBloomFilter {
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void testNoFalseNegatives() {
+        LongBloomFilter filter = new LongBloomFilter(KEYS);
+        // Consecutive, negative and random keys
+        Random random = new Random(42);
+        long[] keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i % 3 == 0 ? i : i % 3 == 1 ? -i : random.nextLong();
+            filter.add(keys[i]);
+        }
+        for (long key : keys) {
+            assertTrue("An added key is always found", filter.mightContain(key));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        LongBloomFilter filter = new LongBloomFilter(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            filter.add(i);
+        }
+        // Keys right after the added ones, as IDs in the entity pool tend to be
+        int falsePositives = 0;
+        for (int i = KEYS; i < KEYS * 2; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("About 1% false positives, was " + falsePositives, falsePositives < KEYS * 0.02);
+    }
+
+    @Test
+    public void testCombinedPairs() {
+        LongBloomFilter filter = new LongBloomFilter(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            filter.add(LongBloomFilter.combine(i, i + 1));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(filter.mightContain(LongBloomFilter.combine(i, i + 1)));
+            // The same IDs in the other order are a different pair
+            if (filter.mightContain(LongBloomFilter.combine(i + 1, i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue("About 1% false positives, was " + falsePositives, falsePositives < KEYS * 0.02);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ontotext.trree.plugin.example;
+
+import com.ontotext.trree.sdk.PluginException;
+import com.ontotext.trree.sdk.StatementIterator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the concurrent enumeration of the list data in {@link ParallelListIterator}.
+ */
+public class TestParallelListIterator {
+    private static final int SUBJECTS = 20_000;
+
+    private static ListStore store;
+    private static Set<String> expected;
+
+    @BeforeClass
+    public static void createStore() {
+        // Sparse subject IDs with a varying number of objects
+        Random random = new Random(42);
+        long[][] entries = new long[SUBJECTS][];
+        long subject = 0;
+        for (int i = 0; i < SUBJECTS; i++) {
+            subject += 1 + random.nextInt(100_000);
+            long[] entry = new long[2 + random.nextInt(4)];
+            entry[0] = subject;
+            for (int j = 1; j < entry.length; j++) {
+                entry[j] = entry[j - 1] + 1 + random.nextInt(1000);
+            }
+            entries[i] = entry;
+        }
+        store = ListStore.of(entries);
+        expected = collect(new ExampleListIterator(store).reset(0, 0));
+    }
+
+    @AfterClass
+    public static void dropStore() {
+        store = null;
+        expected = null;
+    }
+
+    @Test
+    public void testPartition() {
+        int[] bounds = store.partition(8);
+        assertEquals(9, bounds.length);
+        assertEquals(0, bounds[0]);
+        assertEquals(store.segmentCount(), bounds[8]);
+        for (int i = 0; i < 8; i++) {
+            int subjects = 0;
+            for (int j = bounds[i]; j < bounds[i + 1]; j++) {
+                subjects += store.segmentAt(j).size();
+            }
+            assertEquals("Ranges with about the same number of subjects", SUBJECTS / 8.0, subjects,
+                    ListStore.SEGMENT_SUBJECTS);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsSerialScan() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, collect(new ParallelListIterator(store, 4, executor)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testNestedScansOnSingleThread() {
+        // The outer scan fills the queue and pauses, the inner scans must still get the only thread or be scanned
+        // by the consumer itself
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ParallelListIterator outer = new ParallelListIterator(store, 4, executor);
+            for (int i = 0; i < 3 && outer.next(); i++) {
+                assertEquals(expected, collect(new ParallelListIterator(store, 4, executor)));
+            }
+            outer.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testWithoutExecutorThreads() {
+        // All work is done by the consumer when no task can be run
+        ParallelListIterator iterator = new ParallelListIterator(store, 4, runnable -> {
+            throw new RejectedExecutionException();
+        });
+        assertEquals(expected, collect(iterator));
+    }
+
+    @Test(timeout = 60_000)
+    public void testInterrupt() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParallelListIterator iterator = new ParallelListIterator(store, 4, executor);
+            assertTrue(iterator.next());
+            Thread.currentThread().interrupt();
+            try {
+                while (iterator.next()) {
+                    // consume until the interrupt is noticed
+                }
+                fail("The interrupt must stop the iteration");
+            } catch (PluginException e) {
+                assertTrue("The interrupt is kept for the caller", Thread.interrupted());
+            }
+        } finally {
+            Thread.interrupted();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Set<String> collect(StatementIterator iterator) {
+        Set<String> pairs = new HashSet<>();
+        try {
+            while (iterator.next()) {
+                assertTrue("No duplicates", pairs.add(iterator.subject + " " + iterator.object));
+            }
+        } finally {
+            iterator.close();
+        }
+        return pairs;
+    }
+}
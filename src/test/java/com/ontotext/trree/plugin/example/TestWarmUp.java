@@ -0,0 +1,66 @@
+package com.ontotext.trree.plugin.example;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests saving and loading the hot keys of {@link WarmUp}.
+ */
+public class TestWarmUp {
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        WarmUp.HotKeys hotKeys = new WarmUp.HotKeys(4);
+        for (long id = 1; id <= 6; id++) {
+            hotKeys.record(id);
+        }
+        File file = Files.createTempFile("hot-keys", null).toFile();
+        try {
+            hotKeys.save(file);
+            assertArrayEquals("Only the most recent keys are kept", new long[] {5, 6, 3, 4},
+                    WarmUp.HotKeys.load(file, 10));
+            assertArrayEquals("No more than the maximum number of keys", new long[] {5, 6},
+                    WarmUp.HotKeys.load(file, 2));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoadMissing() throws IOException {
+        assertEquals(0, WarmUp.HotKeys.load(new File("no-such-hot-keys"), 10).length);
+    }
+
+    @Test
+    public void testLoadCorrupted() throws IOException {
+        // A negative count, a huge count and a count that doesn't match the keys in the file
+        assertCorrupted(-1, 0);
+        assertCorrupted(Integer.MAX_VALUE, 2);
+        assertCorrupted(3, 2);
+        assertCorrupted(1, 2);
+    }
+
+    private static void assertCorrupted(int count, int keys) throws IOException {
+        File file = Files.createTempFile("hot-keys", null).toFile();
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+                out.writeInt(count);
+                for (int i = 0; i < keys; i++) {
+                    out.writeLong(i + 1);
+                }
+            }
+            WarmUp.HotKeys.load(file, 10);
+            fail("Must fail for a count of " + count + " with " + keys + " keys");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Corrupted"));
+        } finally {
+            file.delete();
+        }
+    }
+}